@@ -0,0 +1,97 @@
+package editortrees;
+
+import java.util.Arrays;
+
+public class ArrayEditTree extends IndexedEditTree {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	char[] data;
+	int[] left;
+	int[] right;
+	int[] rank;
+	byte[] balance;
+
+	public ArrayEditTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public ArrayEditTree(int initialCapacity) {
+		int slots = Math.max(initialCapacity, 1) + 1;
+		this.data = new char[slots];
+		this.left = new int[slots];
+		this.right = new int[slots];
+		this.rank = new int[slots];
+		this.balance = new byte[slots];
+	}
+
+	public ArrayEditTree(String s) {
+		this(s.length());
+		load(s);
+	}
+
+	@Override
+	public int capacity() {
+		return data.length - 1;
+	}
+
+	@Override
+	void grow() {
+		int slots = data.length * 2;
+		data = Arrays.copyOf(data, slots);
+		left = Arrays.copyOf(left, slots);
+		right = Arrays.copyOf(right, slots);
+		rank = Arrays.copyOf(rank, slots);
+		balance = Arrays.copyOf(balance, slots);
+	}
+
+	@Override
+	char data(int node) {
+		return data[node];
+	}
+
+	@Override
+	void setData(int node, char ch) {
+		data[node] = ch;
+	}
+
+	@Override
+	int left(int node) {
+		return left[node];
+	}
+
+	@Override
+	void setLeft(int node, int child) {
+		left[node] = child;
+	}
+
+	@Override
+	int right(int node) {
+		return right[node];
+	}
+
+	@Override
+	void setRight(int node, int child) {
+		right[node] = child;
+	}
+
+	@Override
+	int rank(int node) {
+		return rank[node];
+	}
+
+	@Override
+	void setRank(int node, int rank) {
+		this.rank[node] = rank;
+	}
+
+	@Override
+	byte balance(int node) {
+		return balance[node];
+	}
+
+	@Override
+	void setBalance(int node, byte code) {
+		balance[node] = code;
+	}
+}
@@ -0,0 +1,83 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ArrayEditTreeTest {
+
+	@Test
+	public void test101InsertsMatchEditTreeShape() {
+		Random rand = new Random(3);
+		ArrayEditTree a = new ArrayEditTree();
+		EditTree t = new EditTree();
+		for (int i = 0; i < 500; i++) {
+			int pos = rand.nextInt(t.size() + 1);
+			char ch = (char) ('a' + rand.nextInt(26));
+			a.add(ch, pos);
+			t.add(ch, pos);
+		}
+		assertEquals(t.toString(), a.toString());
+		assertEquals(t.toDebugString(), a.toDebugString());
+		assertEquals(t.slowHeight(), a.slowHeight());
+	}
+
+	@Test
+	public void test102ConstructorWithString() {
+		ArrayEditTree a = new ArrayEditTree("abcdefghijklmnopqrstuvwxyz");
+		assertEquals("abcdefghijklmnopqrstuvwxyz", a.toString());
+		assertEquals(26, a.size());
+		assertEquals(4, a.slowHeight());
+		assertTrue(a.balanceCodesAreCorrect());
+		assertTrue(a.ranksMatchLeftSubtreeSize());
+		assertEquals("hijk", a.get(7, 4));
+	}
+
+	@Test
+	public void test103RandomEditsMatchStringBuilder() {
+		Random rand = new Random(11);
+		ArrayEditTree a = new ArrayEditTree();
+		StringBuilder analog = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			if (analog.length() > 0 && rand.nextInt(5) < 2) {
+				int pos = rand.nextInt(analog.length());
+				assertEquals(analog.charAt(pos), a.delete(pos));
+				analog.deleteCharAt(pos);
+			} else {
+				int pos = rand.nextInt(analog.length() + 1);
+				char ch = (char) ('a' + rand.nextInt(26));
+				a.add(ch, pos);
+				analog.insert(pos, ch);
+			}
+		}
+		assertEquals(analog.toString(), a.toString());
+		assertEquals(analog.length(), a.slowSize());
+		assertTrue(a.balanceCodesAreCorrect());
+		assertTrue(a.ranksMatchLeftSubtreeSize());
+		for (int i = 0; i < analog.length(); i += 7) {
+			assertEquals(analog.charAt(i), a.get(i));
+		}
+	}
+
+	@Test
+	public void test104DeletedSlotsAreReused() {
+		ArrayEditTree a = new ArrayEditTree(8);
+		for (int i = 0; i < 8; i++) {
+			a.add((char) ('a' + i));
+		}
+		int capacity = a.capacity();
+		for (int round = 0; round < 100; round++) {
+			a.delete(round % a.size());
+			a.add('z', round % a.size());
+		}
+		assertEquals(capacity, a.capacity());
+		assertEquals(8, a.size());
+		assertTrue(a.balanceCodesAreCorrect());
+	}
+}
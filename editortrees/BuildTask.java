@@ -0,0 +1,51 @@
+package editortrees;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+final class BuildTask extends RecursiveTask<Node> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final CharSequence s;
+	private final int from;
+	private final int to;
+	private final EditTree tree;
+	private final int cutoff;
+
+	BuildTask(CharSequence s, int from, int to, EditTree tree, int cutoff) {
+		this.s = s;
+		this.from = from;
+		this.to = to;
+		this.tree = tree;
+		this.cutoff = cutoff;
+	}
+
+	@Override
+	protected Node compute() {
+		int count = to - from;
+		if (count <= cutoff) {
+			return Node.build(s, from, to, tree);
+		}
+		//same shape as Node.build, halves built in parallel
+		int mid = from + count / 2;
+		Node node = tree.newNode(s.charAt(mid));
+		node.rank = count / 2;
+		BuildTask right = new BuildTask(s, mid + 1, to, tree, cutoff);
+		right.fork();
+		node.left = new BuildTask(s, from, mid, tree, cutoff).compute();
+		node.right = right.join();
+		node.balance = Node.balanceFor(count / 2, count - count / 2 - 1);
+		node.refresh(tree);
+		return node;
+	}
+
+	static Node build(CharSequence s, int from, int to, EditTree tree, int cutoff) {
+		BuildTask task = new BuildTask(s, from, to, tree, cutoff);
+		if (to - from <= cutoff) {
+			//too-small-to-fork
+			return task.compute();
+		}
+		return ForkJoinPool.commonPool().invoke(task);
+	}
+}
@@ -0,0 +1,96 @@
+package editortrees;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+final class ChannelEncoder {
+
+	private final WritableByteChannel channel;
+	private final CharsetEncoder encoder;
+	private final ByteBuffer[] buffers;
+	private int current;
+	//holds a high surrogate cut off at the end of a slice
+	private final CharBuffer carry = CharBuffer.allocate(2);
+
+	ChannelEncoder(WritableByteChannel channel, Charset charset, int buffers, int bufferSize) {
+		this.channel = channel;
+		//replace like String.getBytes, so a lone surrogate cannot abort a save
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.buffers = new ByteBuffer[buffers];
+		for (int i = 0; i < buffers; i++) {
+			this.buffers[i] = ByteBuffer.allocateDirect(bufferSize);
+		}
+	}
+
+	void write(CharBuffer chars) throws IOException {
+		//the carried char must be resolved before anything after it
+		while (this.carry.position() > 0 && chars.hasRemaining()) {
+			this.carry.put(chars.get());
+			this.carry.flip();
+			encode(this.carry, false);
+			this.carry.compact();
+		}
+		encode(chars, false);
+		this.carry.put(chars);
+	}
+
+	void finish() throws IOException {
+		this.carry.flip();
+		encode(this.carry, true);
+		while (this.encoder.flush(this.buffers[this.current]).isOverflow()) {
+			advance();
+		}
+		drain(this.current + 1);
+	}
+
+	private void encode(CharBuffer chars, boolean endOfInput) throws IOException {
+		while (true) {
+			CoderResult result = this.encoder.encode(chars, this.buffers[this.current], endOfInput);
+			if (result.isUnderflow()) {
+				return;
+			}
+			if (!result.isOverflow()) {
+				result.throwException();
+			}
+			advance();
+		}
+	}
+
+	private void advance() throws IOException {
+		this.current++;
+		if (this.current == this.buffers.length) {
+			drain(this.buffers.length);
+		}
+	}
+
+	private void drain(int used) throws IOException {
+		for (int i = 0; i < used; i++) {
+			this.buffers[i].flip();
+		}
+		if (used > 1 && this.channel instanceof GatheringByteChannel) {
+			//one call for every full buffer
+			GatheringByteChannel gathering = (GatheringByteChannel) this.channel;
+			while (this.buffers[used - 1].hasRemaining()) {
+				gathering.write(this.buffers, 0, used);
+			}
+		} else {
+			for (int i = 0; i < used; i++) {
+				while (this.buffers[i].hasRemaining()) {
+					this.channel.write(this.buffers[i]);
+				}
+			}
+		}
+		for (int i = 0; i < used; i++) {
+			this.buffers[i].clear();
+		}
+		this.current = 0;
+	}
+}
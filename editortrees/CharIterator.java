@@ -0,0 +1,76 @@
+package editortrees;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+class CharIterator implements PrimitiveIterator.OfInt {
+
+	private final EditTree tree;
+	private final int expectedModCount;
+	//walks from to - 1 down to from
+	private final boolean backward;
+	private final Node[] stack;
+	private int depth;
+	private int remaining;
+
+	CharIterator(EditTree tree, int from, int to) {
+		this(tree, from, to, false);
+	}
+
+	CharIterator(EditTree tree, int from, int to, boolean backward) {
+		this.tree = tree;
+		this.expectedModCount = tree.modCount;
+		this.backward = backward;
+		//pending ancestors never outnumber the height
+		this.stack = new Node[tree.root.fastHeight() + 2];
+		this.remaining = to - from;
+		Node node = tree.root;
+		int pos = backward ? to - 1 : from;
+		while (node != Node.NULL_NODE && remaining > 0) {
+			if (pos == node.rank) {
+				stack[depth++] = node;
+				break;
+			}
+			boolean goLeft = pos < node.rank;
+			if (goLeft != backward) {
+				//still-ahead-of-us
+				stack[depth++] = node;
+			}
+			if (goLeft) {
+				node = node.left;
+			} else {
+				pos -= node.rank + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return remaining > 0;
+	}
+
+	@Override
+	public int nextInt() {
+		return nextChar();
+	}
+
+	char nextChar() {
+		if (remaining <= 0) {
+			throw new NoSuchElementException();
+		}
+		if (tree.modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+		Node node = stack[--depth];
+		remaining--;
+		//push-successor-path
+		Node next = backward ? node.left : node.right;
+		while (next != Node.NULL_NODE) {
+			stack[depth++] = next;
+			next = backward ? next.right : next.left;
+		}
+		return node.data;
+	}
+}
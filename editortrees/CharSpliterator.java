@@ -0,0 +1,90 @@
+package editortrees;
+
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+class CharSpliterator implements Spliterator.OfInt {
+
+	private static final int CHARACTERISTICS = SIZED | SUBSIZED | ORDERED | NONNULL;
+
+	private final EditTree tree;
+	private final int expectedModCount;
+	private int from;
+	private final int to;
+	private CharIterator chars;
+
+	CharSpliterator(EditTree tree, int expectedModCount, int from, int to) {
+		this.tree = tree;
+		this.expectedModCount = expectedModCount;
+		this.from = from;
+		this.to = to;
+	}
+
+	private void checkForEdits() {
+		//the iterator checks again on every char it returns
+		if (tree.modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	@Override
+	public OfInt trySplit() {
+		checkForEdits();
+		//highest node strictly inside the range splits it
+		Node node = tree.root;
+		int offset = 0;
+		while (node != Node.NULL_NODE) {
+			int pos = offset + node.rank;
+			if (pos <= from) {
+				offset = pos + 1;
+				node = node.right;
+			} else if (pos >= to) {
+				node = node.left;
+			} else {
+				CharSpliterator prefix = new CharSpliterator(tree, expectedModCount, from, pos);
+				this.from = pos;
+				this.chars = null;
+				return prefix;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean tryAdvance(IntConsumer action) {
+		if (from >= to) {
+			return false;
+		}
+		if (chars == null) {
+			checkForEdits();
+			chars = new CharIterator(tree, from, to);
+		}
+		from++;
+		action.accept(chars.nextChar());
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(IntConsumer action) {
+		if (from >= to) {
+			return;
+		}
+		checkForEdits();
+		CharIterator it = chars == null ? new CharIterator(tree, from, to) : chars;
+		from = to;
+		while (it.hasNext()) {
+			action.accept(it.nextChar());
+		}
+	}
+
+	@Override
+	public long estimateSize() {
+		return to - from;
+	}
+
+	@Override
+	public int characteristics() {
+		return CHARACTERISTICS;
+	}
+}
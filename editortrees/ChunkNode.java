@@ -0,0 +1,273 @@
+package editortrees;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import editortrees.Node.Code;
+
+public class ChunkNode {
+
+	char[] chars;
+	int length;
+	ChunkNode left, right;
+	int rank;
+	Code balance;
+
+	static final ChunkNode NULL_NODE = new ChunkNode(new char[0], 0);
+
+	ChunkNode(char[] chars, int length) {
+		this.chars = chars;
+		this.length = length;
+		this.left = NULL_NODE;
+		this.right = NULL_NODE;
+		this.balance = Code.SAME;
+	}
+
+	ChunkNode(char ch) {
+		this(new char[] { ch }, 1);
+	}
+
+	public boolean hasLeft() {
+		return this.left != NULL_NODE;
+	}
+
+	public boolean hasRight() {
+		return this.right != NULL_NODE;
+	}
+
+	void insertChar(int offset, char ch, int capacity) {
+		if (this.length == this.chars.length) {
+			//grow-chunk
+			char[] grown = new char[Math.min(capacity, Math.max(4, this.chars.length * 2))];
+			System.arraycopy(this.chars, 0, grown, 0, this.length);
+			this.chars = grown;
+		}
+		System.arraycopy(this.chars, offset, this.chars, offset + 1, this.length - offset);
+		this.chars[offset] = ch;
+		this.length++;
+	}
+
+	void insertChars(int offset, char[] run, int count, int capacity) {
+		if (this.length + count > this.chars.length) {
+			char[] grown = new char[Math.min(capacity, Math.max(this.length + count, this.chars.length * 2))];
+			System.arraycopy(this.chars, 0, grown, 0, this.length);
+			this.chars = grown;
+		}
+		System.arraycopy(this.chars, offset, this.chars, offset + count, this.length - offset);
+		System.arraycopy(run, 0, this.chars, offset, count);
+		this.length += count;
+	}
+
+	char removeChar(int offset) {
+		char removed = this.chars[offset];
+		System.arraycopy(this.chars, offset + 1, this.chars, offset, this.length - offset - 1);
+		this.length--;
+		if (this.length < this.chars.length / 4 && this.chars.length > 4) {
+			//shrink-chunk
+			this.chars = Arrays.copyOf(this.chars, Math.max(4, this.length * 2));
+		}
+		return removed;
+	}
+
+	ChunkNode splitOff(int offset) {
+		int tailLength = this.length - offset;
+		//tail-sized-to-fit
+		char[] tail = Arrays.copyOfRange(this.chars, offset, this.length);
+		this.length = offset;
+		return new ChunkNode(tail, tailLength);
+	}
+
+	int slowHeight() {
+		if (this == NULL_NODE) {
+			return -1;
+		}
+		return Math.max(left.slowHeight(), right.slowHeight()) + 1;
+	}
+
+	int slowSize() {
+		if (this == NULL_NODE) {
+			return 0;
+		}
+		return left.slowSize() + this.length + right.slowSize();
+	}
+
+	int slowCapacity() {
+		if (this == NULL_NODE) {
+			return 0;
+		}
+		return left.slowCapacity() + this.chars.length + right.slowCapacity();
+	}
+
+	int chunkCount() {
+		if (this == NULL_NODE) {
+			return 0;
+		}
+		return left.chunkCount() + 1 + right.chunkCount();
+	}
+
+	boolean ranksMatchLeftSubtreeSize() {
+		if (this == NULL_NODE) {
+			return true;
+		}
+		if (this.rank != left.slowSize() || this.length == 0) {
+			return false;
+		}
+		return left.ranksMatchLeftSubtreeSize() && right.ranksMatchLeftSubtreeSize();
+	}
+
+	int heightIfCodesCorrect() {
+		if (this == NULL_NODE) {
+			return -1;
+		}
+		int leftHeight = left.heightIfCodesCorrect();
+		int rightHeight = right.heightIfCodesCorrect();
+		if (leftHeight == -2 || rightHeight == -2) {
+			return -2;
+		}
+		switch (this.balance) {
+		case LEFT:
+			return leftHeight == rightHeight + 1 ? leftHeight + 1 : -2;
+		case RIGHT:
+			return rightHeight == leftHeight + 1 ? rightHeight + 1 : -2;
+		default:
+			return leftHeight == rightHeight ? leftHeight + 1 : -2;
+		}
+	}
+
+	char get(int pos) {
+		if (this == NULL_NODE) {
+			throw new IndexOutOfBoundsException("Pos is out of bounds");
+		}
+		if (pos < this.rank) {
+			return left.get(pos);
+		} else if (pos < this.rank + this.length) {
+			return this.chars[pos - this.rank];
+		} else {
+			return right.get(pos - this.rank - this.length);
+		}
+	}
+
+	void get(int leftPos, int rightPos, StringBuilder sb) {
+		if (this == NULL_NODE) {
+			return;
+		}
+		if (leftPos < rank) {
+			//pull-left
+			left.get(leftPos, Math.min(rank - 1, rightPos), sb);
+		}
+		int from = Math.max(leftPos - rank, 0);
+		int to = Math.min(rightPos - rank, length - 1);
+		if (from <= to) {
+			//pull-self
+			sb.append(this.chars, from, to - from + 1);
+		}
+		if (rightPos >= rank + length) {
+			//pull-right
+			right.get(Math.max(leftPos - rank - length, 0), rightPos - rank - length, sb);
+		}
+	}
+
+	int fill(int from, int to, char[] dst, int index) {
+		if (this == NULL_NODE || from >= to) {
+			return index;
+		}
+		if (from < rank) {
+			index = left.fill(from, Math.min(to, rank), dst, index);
+		}
+		int start = Math.max(from - rank, 0);
+		int end = Math.min(to - rank, length);
+		if (start < end) {
+			//copy-chunk-slice
+			System.arraycopy(this.chars, start, dst, index, end - start);
+			index += end - start;
+		}
+		if (to > rank + length) {
+			index = right.fill(Math.max(from - rank - length, 0), to - rank - length, dst, index);
+		}
+		return index;
+	}
+
+	void appendTo(int from, int to, Appendable out) throws IOException {
+		if (this == NULL_NODE || from >= to) {
+			return;
+		}
+		if (from < rank) {
+			left.appendTo(from, Math.min(to, rank), out);
+		}
+		int start = Math.max(from - rank, 0);
+		int end = Math.min(to - rank, length);
+		if (start < end) {
+			append(out, start, end - start);
+		}
+		if (to > rank + length) {
+			right.appendTo(Math.max(from - rank - length, 0), to - rank - length, out);
+		}
+	}
+
+	private void append(Appendable out, int offset, int count) throws IOException {
+		if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(this.chars, offset, count);
+		} else if (out instanceof Writer) {
+			((Writer) out).write(this.chars, offset, count);
+		} else if (out instanceof CharBuffer) {
+			((CharBuffer) out).put(this.chars, offset, count);
+		} else {
+			out.append(CharBuffer.wrap(this.chars, offset, count));
+		}
+	}
+
+	void writeTo(ChannelEncoder encoder) throws IOException {
+		if (this == NULL_NODE) {
+			return;
+		}
+		left.writeTo(encoder);
+		encoder.write(CharBuffer.wrap(this.chars, 0, this.length));
+		right.writeTo(encoder);
+	}
+
+	int views(int from, int to, CharBuffer[] views, int count) {
+		if (this == NULL_NODE || from >= to || count == views.length) {
+			return count;
+		}
+		if (from < rank) {
+			count = left.views(from, Math.min(to, rank), views, count);
+		}
+		int start = Math.max(from - rank, 0);
+		int end = Math.min(to - rank, length);
+		if (start < end && count < views.length) {
+			//shares-the-chunk-array; position and limit bound the slice
+			views[count++] = CharBuffer.wrap(this.chars, start, end - start).asReadOnlyBuffer();
+		}
+		if (to > rank + length) {
+			count = right.views(Math.max(from - rank - length, 0), to - rank - length, views, count);
+		}
+		return count;
+	}
+
+	void appendTo(StringBuilder sb) {
+		if (this == NULL_NODE) {
+			return;
+		}
+		left.appendTo(sb);
+		sb.append(this.chars, 0, this.length);
+		right.appendTo(sb);
+	}
+
+	ChunkNode rotateLeft() {
+		ChunkNode newParent = this.right;
+		this.right = newParent.left;
+		newParent.left = this;
+		newParent.rank += this.rank + this.length;
+		return newParent;
+	}
+
+	ChunkNode rotateRight() {
+		ChunkNode newParent = this.left;
+		this.left = newParent.right;
+		newParent.right = this;
+		this.rank -= newParent.rank + newParent.length;
+		return newParent;
+	}
+}
@@ -0,0 +1,453 @@
+package editortrees;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+import editortrees.Node.Code;
+
+public class ChunkedEditTree {
+
+	static final int DEFAULT_CHUNK_SIZE = 256;
+	private static final int WRITE_BUFFERS = 4;
+	private static final int WRITE_BUFFER_SIZE = 8192;
+
+	ChunkNode root;
+	private int size;
+	private final int chunkSize;
+	//chunks below this fill merge into a neighbour
+	private final int minFill;
+	private boolean heightChanged;
+	private char deletedChar;
+	private ChunkNode removedNode;
+	private int underfullOffset;
+	private int underfullLength;
+
+	public ChunkedEditTree() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	public ChunkedEditTree(int chunkSize) {
+		if (chunkSize < 2) {
+			throw new IllegalArgumentException("Chunks must hold at least two characters.");
+		}
+		this.chunkSize = chunkSize;
+		this.minFill = chunkSize / 4;
+		this.root = ChunkNode.NULL_NODE;
+		this.size = 0;
+	}
+
+	public ChunkedEditTree(String s) {
+		this(s, DEFAULT_CHUNK_SIZE);
+	}
+
+	public ChunkedEditTree(String s, int chunkSize) {
+		this(chunkSize);
+		int chunks = (s.length() + chunkSize - 1) / chunkSize;
+		this.root = build(s, 0, chunks);
+		this.size = s.length();
+	}
+
+	private ChunkNode build(String s, int firstChunk, int endChunk) {
+		if (firstChunk >= endChunk) {
+			return ChunkNode.NULL_NODE;
+		}
+		int count = endChunk - firstChunk;
+		int mid = firstChunk + count / 2;
+		int from = mid * chunkSize;
+		int to = Math.min(s.length(), from + chunkSize);
+		char[] chars = new char[to - from];
+		s.getChars(from, to, chars, 0);
+		ChunkNode node = new ChunkNode(chars, chars.length);
+		//left-chunks-full
+		node.rank = (mid - firstChunk) * chunkSize;
+		node.left = build(s, firstChunk, mid);
+		node.right = build(s, mid + 1, endChunk);
+		node.balance = Node.balanceFor(count / 2, count - count / 2 - 1);
+		return node;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(size);
+		root.appendTo(sb);
+		return sb.toString();
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int chunkSize() {
+		return this.chunkSize;
+	}
+
+	public int chunkCount() {
+		return root.chunkCount();
+	}
+
+	public void add(char ch) {
+		add(ch, size);
+	}
+
+	public void add(char ch, int pos) throws IndexOutOfBoundsException {
+		if (pos > this.size() || pos < 0) {
+			//add-bounds
+			throw new IndexOutOfBoundsException("The given position is greater than the size of the tree.");
+		}
+		root = insert(root, ch, pos);
+		this.size++;
+	}
+
+	public char get(int pos) throws IndexOutOfBoundsException {
+		if (pos >= size || pos < 0) {
+			throw new IndexOutOfBoundsException("Pos is out of bounds");
+		}
+		return root.get(pos);
+	}
+
+	public String get(int pos, int length) throws IndexOutOfBoundsException {
+		if (pos + length > size || pos < 0 || length < 0) {
+			//slice-bounds
+			throw new IndexOutOfBoundsException("Index out of bounds for get method :(");
+		}
+		StringBuilder sb = new StringBuilder(length);
+		root.get(pos, pos + length - 1, sb);
+		return sb.toString();
+	}
+
+	public void getChars(int pos, int length, char[] dst, int dstOffset) throws IndexOutOfBoundsException {
+		checkRange(pos, length);
+		if (dstOffset + length > dst.length || dstOffset < 0) {
+			throw new IndexOutOfBoundsException("Destination cannot hold " + length + " chars at " + dstOffset + ".");
+		}
+		root.fill(pos, pos + length, dst, dstOffset);
+	}
+
+	public void appendTo(Appendable out, int pos, int length) throws IOException {
+		checkRange(pos, length);
+		root.appendTo(pos, pos + length, out);
+	}
+
+	public int chunkViews(int pos, int length, CharBuffer[] views) throws IndexOutOfBoundsException {
+		checkRange(pos, length);
+		//views go stale on the next edit
+		return root.views(pos, pos + length, views, 0);
+	}
+
+	public void writeTo(Writer out) throws IOException {
+		appendTo(out, 0, size);
+	}
+
+	public void writeTo(WritableByteChannel channel, Charset charset) throws IOException {
+		//chunks are encoded in place; full buffers go out in one gathering write
+		ChannelEncoder encoder = new ChannelEncoder(channel, charset, WRITE_BUFFERS, WRITE_BUFFER_SIZE);
+		root.writeTo(encoder);
+		encoder.finish();
+	}
+
+	private void checkRange(int pos, int length) {
+		if (pos + length > size || pos < 0 || length < 0) {
+			throw new IndexOutOfBoundsException("Range [" + pos + ", " + (pos + length) + ") is outside the tree.");
+		}
+	}
+
+	public char delete(int pos) throws IndexOutOfBoundsException {
+		if (pos >= size || pos < 0) {
+			//delete-bounds
+			throw new IndexOutOfBoundsException();
+		}
+		underfullLength = 0;
+		root = delete(root, pos);
+		this.size--;
+		if (underfullLength > 0) {
+			mergeUnderfull(pos - underfullOffset, underfullLength);
+		}
+		return deletedChar;
+	}
+
+	private void mergeUnderfull(int start, int length) {
+		ChunkNode underfull = chunkAt(start);
+		char[] run = underfull.chars;
+		if (start > 0 && chunkAt(start - 1).length + length <= chunkSize) {
+			root = removeChunk(root, start, length);
+			//append-to-previous
+			spliceRun(start - 1, true, run, length);
+		} else if (start + length < size && chunkAt(start + length).length + length <= chunkSize) {
+			root = removeChunk(root, start, length);
+			//prepend-to-next
+			spliceRun(start, false, run, length);
+		}
+	}
+
+	private ChunkNode chunkAt(int pos) {
+		ChunkNode node = root;
+		while (true) {
+			if (pos < node.rank) {
+				node = node.left;
+			} else if (pos < node.rank + node.length) {
+				return node;
+			} else {
+				pos -= node.rank + node.length;
+				node = node.right;
+			}
+		}
+	}
+
+	private void spliceRun(int pos, boolean atEnd, char[] run, int length) {
+		ChunkNode node = root;
+		while (true) {
+			if (pos < node.rank) {
+				node.rank += length;
+				node = node.left;
+			} else if (pos < node.rank + node.length) {
+				node.insertChars(atEnd ? node.length : 0, run, length, chunkSize);
+				return;
+			} else {
+				pos -= node.rank + node.length;
+				node = node.right;
+			}
+		}
+	}
+
+	private ChunkNode removeChunk(ChunkNode node, int start, int length) {
+		if (start < node.rank) {
+			node.rank -= length;
+			node.left = removeChunk(node.left, start, length);
+			return heightChanged ? shrankLeft(node) : node;
+		}
+		if (start == node.rank) {
+			return removeNode(node);
+		}
+		node.right = removeChunk(node.right, start - node.rank - node.length, length);
+		return heightChanged ? shrankRight(node) : node;
+	}
+
+	public int slowHeight() {
+		return root.slowHeight();
+	}
+
+	public int slowSize() {
+		return root.slowSize();
+	}
+
+	public boolean ranksMatchLeftSubtreeSize() {
+		return root.ranksMatchLeftSubtreeSize();
+	}
+
+	public boolean balanceCodesAreCorrect() {
+		return root.heightIfCodesCorrect() != -2;
+	}
+
+	private ChunkNode insert(ChunkNode node, char ch, int pos) {
+		if (node == ChunkNode.NULL_NODE) {
+			//leaf-insert
+			heightChanged = true;
+			return new ChunkNode(ch);
+		}
+		if (pos < node.rank) {
+			//rank++left
+			node.rank++;
+			node.left = insert(node.left, ch, pos);
+			return heightChanged ? grewLeft(node) : node;
+		}
+		int offset = pos - node.rank;
+		if (offset <= node.length) {
+			if (node.length < chunkSize) {
+				//fill-chunk
+				node.insertChar(offset, ch, chunkSize);
+				heightChanged = false;
+				return node;
+			}
+			//split-chunk
+			ChunkNode tail = node.splitOff(node.length / 2);
+			if (offset <= node.length) {
+				node.insertChar(offset, ch, chunkSize);
+			} else {
+				tail.insertChar(offset - node.length, ch, chunkSize);
+			}
+			node.right = insertFirst(node.right, tail);
+			return heightChanged ? grewRight(node) : node;
+		}
+		node.right = insert(node.right, ch, offset - node.length);
+		return heightChanged ? grewRight(node) : node;
+	}
+
+	private ChunkNode insertFirst(ChunkNode node, ChunkNode first) {
+		if (node == ChunkNode.NULL_NODE) {
+			heightChanged = true;
+			return first;
+		}
+		node.rank += first.length;
+		node.left = insertFirst(node.left, first);
+		return heightChanged ? grewLeft(node) : node;
+	}
+
+	private ChunkNode grewLeft(ChunkNode node) {
+		switch (node.balance) {
+		case RIGHT:
+			node.balance = Code.SAME;
+			heightChanged = false;
+			return node;
+		case SAME:
+			node.balance = Code.LEFT;
+			return node;
+		default:
+			//fix-L*
+			ChunkNode newRoot = fixLeftHeavy(node);
+			heightChanged = false;
+			return newRoot;
+		}
+	}
+
+	private ChunkNode grewRight(ChunkNode node) {
+		switch (node.balance) {
+		case LEFT:
+			node.balance = Code.SAME;
+			heightChanged = false;
+			return node;
+		case SAME:
+			node.balance = Code.RIGHT;
+			return node;
+		default:
+			//fix-R*
+			ChunkNode newRoot = fixRightHeavy(node);
+			heightChanged = false;
+			return newRoot;
+		}
+	}
+
+	private ChunkNode delete(ChunkNode node, int pos) {
+		if (pos < node.rank) {
+			//step-left
+			node.rank--;
+			node.left = delete(node.left, pos);
+			return heightChanged ? shrankLeft(node) : node;
+		}
+		int offset = pos - node.rank;
+		if (offset < node.length) {
+			//hit-chunk
+			deletedChar = node.removeChar(offset);
+			if (node.length > 0) {
+				if (node.length < minFill) {
+					underfullOffset = offset;
+					underfullLength = node.length;
+				}
+				heightChanged = false;
+				return node;
+			}
+			return removeNode(node);
+		}
+		//step-right
+		node.right = delete(node.right, offset - node.length);
+		return heightChanged ? shrankRight(node) : node;
+	}
+
+	private ChunkNode removeNode(ChunkNode node) {
+		if (!node.hasLeft() || !node.hasRight()) {
+			heightChanged = true;
+			return node.hasLeft() ? node.left : node.right;
+		}
+		//swap-successor
+		node.right = removeFirst(node.right);
+		node.chars = removedNode.chars;
+		node.length = removedNode.length;
+		removedNode = null;
+		return heightChanged ? shrankRight(node) : node;
+	}
+
+	private ChunkNode removeFirst(ChunkNode node) {
+		if (!node.hasLeft()) {
+			removedNode = node;
+			heightChanged = true;
+			return node.right;
+		}
+		node.left = removeFirst(node.left);
+		node.rank -= removedNode.length;
+		return heightChanged ? shrankLeft(node) : node;
+	}
+
+	private ChunkNode shrankLeft(ChunkNode node) {
+		switch (node.balance) {
+		case LEFT:
+			node.balance = Code.SAME;
+			return node;
+		case SAME:
+			node.balance = Code.RIGHT;
+			heightChanged = false;
+			return node;
+		default:
+			return fixRightHeavy(node);
+		}
+	}
+
+	private ChunkNode shrankRight(ChunkNode node) {
+		switch (node.balance) {
+		case RIGHT:
+			node.balance = Code.SAME;
+			return node;
+		case SAME:
+			node.balance = Code.LEFT;
+			heightChanged = false;
+			return node;
+		default:
+			return fixLeftHeavy(node);
+		}
+	}
+
+	private ChunkNode fixLeftHeavy(ChunkNode node) {
+		ChunkNode child = node.left;
+		if (child.balance == Code.RIGHT) {
+			//rot-LR
+			ChunkNode grandchild = child.right;
+			node.left = child.rotateLeft();
+			node.rotateRight();
+			child.balance = grandchild.balance == Code.RIGHT ? Code.LEFT : Code.SAME;
+			node.balance = grandchild.balance == Code.LEFT ? Code.RIGHT : Code.SAME;
+			grandchild.balance = Code.SAME;
+			heightChanged = true;
+			return grandchild;
+		}
+		//rot-R
+		node.rotateRight();
+		if (child.balance == Code.SAME) {
+			child.balance = Code.RIGHT;
+			node.balance = Code.LEFT;
+			heightChanged = false;
+		} else {
+			child.balance = Code.SAME;
+			node.balance = Code.SAME;
+			heightChanged = true;
+		}
+		return child;
+	}
+
+	private ChunkNode fixRightHeavy(ChunkNode node) {
+		ChunkNode child = node.right;
+		if (child.balance == Code.LEFT) {
+			//rot-RL
+			ChunkNode grandchild = child.left;
+			node.right = child.rotateRight();
+			node.rotateLeft();
+			node.balance = grandchild.balance == Code.RIGHT ? Code.LEFT : Code.SAME;
+			child.balance = grandchild.balance == Code.LEFT ? Code.RIGHT : Code.SAME;
+			grandchild.balance = Code.SAME;
+			heightChanged = true;
+			return grandchild;
+		}
+		//rot-L
+		node.rotateLeft();
+		if (child.balance == Code.SAME) {
+			child.balance = Code.LEFT;
+			node.balance = Code.RIGHT;
+			heightChanged = false;
+		} else {
+			child.balance = Code.SAME;
+			node.balance = Code.SAME;
+			heightChanged = true;
+		}
+		return child;
+	}
+}
@@ -0,0 +1,214 @@
+package editortrees;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ChunkedEditTreeTest {
+
+	@Test
+	public void test101EmptyAndAppend() {
+		ChunkedEditTree t = new ChunkedEditTree(4);
+		assertEquals("", t.toString());
+		for (char c = 'a'; c <= 'z'; c++) {
+			t.add(c);
+		}
+		assertEquals("abcdefghijklmnopqrstuvwxyz", t.toString());
+		assertEquals(26, t.size());
+		assertTrue(t.chunkCount() < 26);
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void test102ConstructorWithString() {
+		String s = "the quick brown fox jumps over the lazy dog";
+		for (int chunk = 2; chunk < 12; chunk++) {
+			ChunkedEditTree t = new ChunkedEditTree(s, chunk);
+			assertEquals(s, t.toString());
+			assertEquals((s.length() + chunk - 1) / chunk, t.chunkCount());
+			assertTrue(t.ranksMatchLeftSubtreeSize());
+			assertTrue(t.balanceCodesAreCorrect());
+			for (int i = 0; i < s.length(); i++) {
+				assertEquals(s.charAt(i), t.get(i));
+			}
+			assertEquals(s.substring(5, 30), t.get(5, 25));
+		}
+	}
+
+	@Test
+	public void test103DeleteEmptiesChunks() {
+		ChunkedEditTree t = new ChunkedEditTree("abcdefghij", 3);
+		assertEquals('d', t.delete(3));
+		assertEquals('e', t.delete(3));
+		assertEquals('f', t.delete(3));
+		assertEquals("abcghij", t.toString());
+		assertEquals(3, t.chunkCount());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void test104RandomEditsMatchStringBuilder() {
+		Random rand = new Random(17);
+		for (int chunk : new int[] { 2, 3, 8, 64 }) {
+			ChunkedEditTree t = new ChunkedEditTree(chunk);
+			StringBuilder analog = new StringBuilder();
+			for (int i = 0; i < 5000; i++) {
+				if (analog.length() > 0 && rand.nextInt(3) == 0) {
+					int pos = rand.nextInt(analog.length());
+					assertEquals(analog.charAt(pos), t.delete(pos));
+					analog.deleteCharAt(pos);
+				} else {
+					int pos = rand.nextInt(analog.length() + 1);
+					char ch = (char) ('a' + rand.nextInt(26));
+					t.add(ch, pos);
+					analog.insert(pos, ch);
+				}
+			}
+			assertEquals(analog.toString(), t.toString());
+			assertEquals(analog.length(), t.slowSize());
+			assertTrue(t.ranksMatchLeftSubtreeSize());
+			assertTrue(t.balanceCodesAreCorrect());
+			int from = analog.length() / 3;
+			assertEquals(analog.substring(from, from * 2), t.get(from, from));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void test105AddOutOfBounds() {
+		ChunkedEditTree t = new ChunkedEditTree("abc");
+		t.add('x', 4);
+	}
+
+	@Test
+	public void test106GetCharsAndAppendTo() throws IOException {
+		Random rand = new Random(6);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			text.append((char) ('a' + rand.nextInt(26)));
+		}
+		String s = text.toString();
+		for (int chunk : new int[] { 2, 3, 16, 1000 }) {
+			ChunkedEditTree t = new ChunkedEditTree(s, chunk);
+			for (int i = 0; i < 100; i++) {
+				int pos = rand.nextInt(s.length() + 1);
+				int length = rand.nextInt(s.length() - pos + 1);
+				String expected = s.substring(pos, pos + length);
+				char[] dst = new char[length + 2];
+				t.getChars(pos, length, dst, 2);
+				assertEquals(expected, new String(dst, 2, length));
+				StringBuilder sb = new StringBuilder();
+				t.appendTo(sb, pos, length);
+				assertEquals(expected, sb.toString());
+				StringWriter writer = new StringWriter();
+				t.appendTo(writer, pos, length);
+				assertEquals(expected, writer.toString());
+			}
+		}
+	}
+
+	@Test
+	public void test107ChunkViewsShareChunks() {
+		ChunkedEditTree t = new ChunkedEditTree("abcdefghij", 4);
+		CharBuffer[] views = new CharBuffer[8];
+		int count = t.chunkViews(2, 7, views);
+		StringBuilder joined = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			assertTrue(views[i].isReadOnly());
+			joined.append(views[i]);
+		}
+		assertEquals("cdefghi", joined.toString());
+		assertEquals(t.chunkCount(), count);
+		//a short array takes the leading chunks only
+		assertEquals(1, t.chunkViews(2, 7, new CharBuffer[1]));
+		assertEquals(0, t.chunkViews(5, 0, views));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void test108GetCharsOutOfBounds() {
+		new ChunkedEditTree("abc").getChars(1, 3, new char[3], 0);
+	}
+
+	@Test
+	public void test109WriteToGathersEncodedChunks() throws IOException {
+		Random rand = new Random(9);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 40000; i++) {
+			if (rand.nextInt(8) == 0) {
+				text.append("\ud83d\ude00");
+			} else {
+				text.append((char) ('a' + rand.nextInt(26)));
+			}
+		}
+		text.append('\ud800');
+		String s = text.toString();
+		for (int chunk : new int[] { 2, 3, 256 }) {
+			ChunkedEditTree t = new ChunkedEditTree(s, chunk);
+			for (Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16BE }) {
+				EditTreeTestSupport.RecordingChannel channel = new EditTreeTestSupport.RecordingChannel();
+				t.writeTo(channel, charset);
+				assertArrayEquals(s.getBytes(charset), channel.bytes.toByteArray());
+				assertTrue(channel.gathered > 0);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				t.writeTo(Channels.newChannel(out), charset);
+				assertArrayEquals(s.getBytes(charset), out.toByteArray());
+			}
+			StringWriter writer = new StringWriter();
+			t.writeTo(writer);
+			assertEquals(s, writer.toString());
+		}
+	}
+
+	@Test
+	public void test110WriteToKeepsLoneSurrogatesInOrder() throws IOException {
+		String[] texts = { "ab\ud83d\ud83d\ude00cd", "\ud83d\ud83d\ud83d\ude00", "a\ude00\ud83d\ude00\ud83d",
+				"\ud83d\ude00\ud83dx\ud83d\ud83d\ude00" };
+		for (String s : texts) {
+			for (int chunk = 2; chunk <= 5; chunk++) {
+				ChunkedEditTree t = new ChunkedEditTree(s, chunk);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				t.writeTo(Channels.newChannel(out), StandardCharsets.UTF_8);
+				assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+			}
+		}
+	}
+
+	@Test
+	public void test111DeletesMergeAndTrimChunks() {
+		Random rand = new Random(11);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1 << 17; i++) {
+			text.append((char) ('a' + rand.nextInt(26)));
+		}
+		ChunkedEditTree t = new ChunkedEditTree(text.toString());
+		StringBuilder analog = new StringBuilder(text);
+		//keep one char in eight, deleting from the back so positions stay put
+		for (int pos = analog.length() - 1; pos >= 0; pos--) {
+			if (pos % 8 != 0) {
+				assertEquals(analog.charAt(pos), t.delete(pos));
+				analog.deleteCharAt(pos);
+			}
+		}
+		assertEquals(analog.toString(), t.toString());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+		//underfull chunks were folded into their neighbours
+		assertTrue(t.chunkCount() <= analog.length() / (t.chunkSize() / 4) + 1);
+		assertTrue(t.root.slowCapacity() <= 2 * analog.length() + 4 * t.chunkCount());
+	}
+}
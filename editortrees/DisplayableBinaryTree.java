@@ -12,6 +12,10 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javax.swing.JComponent;
 import javax.swing.JFrame;
 
@@ -27,10 +31,14 @@ public class DisplayableBinaryTree extends JComponent {
 	private static final Color PARENT_ARROW_COLOR = new Color(0x77619A);
 	private static final String FONT_NAME = "Comic Sans MS"; 
 
+	//weak both ways: each display holds its tree, so a strong value would pin its own key
+	private static final Map<EditTree, WeakReference<DisplayableBinaryTree>> OPEN_DISPLAYS = new WeakHashMap<EditTree, WeakReference<DisplayableBinaryTree>>();
+
 	private int width;
 	private int height;
 	private EditTree tree;
 	private JFrame frame;
+	private final Thread repainter;
 	private double xDistance;
 	private double circleRadius;
 	private double yDistance;
@@ -38,6 +46,7 @@ public class DisplayableBinaryTree extends JComponent {
 	private double nodeY;
 	private double angle;
 	private boolean goingCrazy;
+	private final Map<Node, DisplayableNodeWrapper> wrappers = new IdentityHashMap<Node, DisplayableNodeWrapper>();
 
 	public DisplayableBinaryTree(EditTree tree, int windowWidth, int windowHeight, boolean visable) {
 		this.angle = 0;
@@ -60,7 +69,39 @@ public class DisplayableBinaryTree extends JComponent {
 				}
 			}
 		};
-		new Thread(repainter).start();
+		this.repainter = new Thread(repainter);
+		this.repainter.start();
+	}
+
+	static synchronized void showTree(EditTree tree) {
+		WeakReference<DisplayableBinaryTree> ref = OPEN_DISPLAYS.get(tree);
+		DisplayableBinaryTree display = ref == null ? null : ref.get();
+		if (display == null) {
+			display = new DisplayableBinaryTree(tree, 960, 1080, true);
+			OPEN_DISPLAYS.put(tree, new WeakReference<DisplayableBinaryTree>(display));
+		} else {
+			display.show(true);
+		}
+	}
+
+	static synchronized void closeTree(EditTree tree) {
+		WeakReference<DisplayableBinaryTree> ref = OPEN_DISPLAYS.remove(tree);
+		DisplayableBinaryTree display = ref == null ? null : ref.get();
+		if (display != null) {
+			display.close();
+		}
+	}
+
+	DisplayableNodeWrapper wrapperFor(Node node) {
+		if (node == Node.NULL_NODE) {
+			return null;
+		}
+		DisplayableNodeWrapper wrapper = this.wrappers.get(node);
+		if (wrapper == null) {
+			wrapper = new DisplayableNodeWrapper(node, this);
+			this.wrappers.put(node, wrapper);
+		}
+		return wrapper;
 	}
 
 	public void show(boolean visable) {
@@ -82,6 +123,8 @@ public class DisplayableBinaryTree extends JComponent {
 	}
 
 	public void close() {
+		//the repaint loop would otherwise keep this display reachable
+		this.repainter.interrupt();
 		this.frame.dispose();
 	}
 
@@ -153,7 +196,8 @@ public class DisplayableBinaryTree extends JComponent {
 		g2.fill(new Rectangle2D.Double(this.width - 20, 80, 40, 5));
 		g2.fill(new Rectangle2D.Double(this.width - 25, 90, 50, 5));
 		
-		DisplayableNodeWrapper current = this.tree.root.displayableNodeWrapper;
+		this.wrappers.clear();
+		DisplayableNodeWrapper current = this.wrapperFor(this.tree.root);
 		
 		this.paintHelper(g2, current, this.nodeY);
 		this.lineHelper(g2, current);
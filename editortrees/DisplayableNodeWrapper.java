@@ -14,29 +14,25 @@ public class DisplayableNodeWrapper {
 	private Point.Double point;
 	private double radius;
 	private Node node;
+	private DisplayableBinaryTree display;
 
-	public DisplayableNodeWrapper(Node node) {
+	public DisplayableNodeWrapper(Node node, DisplayableBinaryTree display) {
 		this.point = null;
 		this.radius = -10;
 		this.node = node;
+		this.display = display;
 	}
 
 	public DisplayableNodeWrapper getLeft() {
-		if (this.node.left != Node.NULL_NODE) {
-			return this.node.left.displayableNodeWrapper;
-		}
-		return null;
+		return this.display.wrapperFor(this.node.left);
 	}
 
 	public DisplayableNodeWrapper getRight() {
-		if (this.node.right != Node.NULL_NODE) {
-			return this.node.right.displayableNodeWrapper;
-		}
-		return null;
+		return this.display.wrapperFor(this.node.right);
 	}
 	
 	public DisplayableNodeWrapper getParent() {
-		return this.node.getParent().displayableNodeWrapper;
+		return this.display.wrapperFor(this.node.getParent());
 	}
 	
 	public Node getNode() {
@@ -1,14 +1,61 @@
 package editortrees;
 
-import editortrees.Node.Code;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
 import editortrees.Node.HeightAndCodesCorrect;
 import editortrees.Node.NodeInfo;
+import editortrees.Node.SplitInfo;
+
+public class EditTree implements CharSequence {
 
-public class EditTree {
+	private static final int READ_BUFFER_SIZE = 8192;
+	private static final int APPEND_BUFFER_SIZE = 1024;
+	//per thread, so concurrent readers of one tree never share a buffer
+	private static final ThreadLocal<CharBuffer> APPEND_BUFFER = new ThreadLocal<>();
+	private static final int WRITE_BUFFER_SIZE = 8192;
+	//avl height stays under 1.45 * log2(n + 2)
+	private static final int MAX_PATH = 64;
+	private static final int SEARCH_CUTOFF = 1 << 16;
+	private static final int FILL_CUTOFF = 1 << 16;
+	static final int BUILD_CUTOFF = 1 << 16;
+	private static final Summary<?>[] NO_SUMMARIES = new Summary<?>[0];
 
 	Node root;
 	private int size;
-	private DisplayableBinaryTree display;
+	//never null, or trees would claim each other's untagged nodes
+	Object owner = new Object();
+	int modCount;
+	Summary<?>[] summaries = NO_SUMMARIES;
+	//opt-in, so untracked trees keep plain nodes
+	boolean unicode;
+	private final Node[] path = new Node[MAX_PATH];
+	private final boolean[] wentLeft = new boolean[MAX_PATH];
+	//weak, so abandoned cursors cost nothing once collected
+	private List<WeakReference<Cursor>> cursors;
+	//close() must not load the display classes for a tree never shown
+	private boolean shown;
 
 	public EditTree() {
 		this.root = Node.NULL_NODE;
@@ -16,11 +63,13 @@ public class EditTree {
 	}
 
 	public EditTree(char ch) {
-		this.root = new Node(ch);
+		this.root = newNode(ch);
 		this.size = 1;
 	}
 
 	public EditTree(EditTree e) {
+		this.summaries = e.summaries;
+		this.unicode = e.unicode;
 		this.root = cloneTree(e.root);
 		this.size = e.size;
 	}
@@ -30,50 +79,338 @@ public class EditTree {
 			//clone-null
 			return Node.NULL_NODE;
 		}
-		Node cloneBase = new Node(base.data);
 		//clone-copy
-		cloneBase.balance = base.balance;
-		cloneBase.rank = base.rank;
+		Node cloneBase = base.copyFor(this);
 		cloneBase.left = cloneTree(base.left);
 		cloneBase.right = cloneTree(base.right);
 		return cloneBase;
 	}
 
+	public EditTree snapshot() {
+		EditTree copy = new EditTree();
+		copy.root = this.root;
+		copy.size = this.size;
+		copy.summaries = this.summaries;
+		copy.unicode = this.unicode;
+		//fork-owners
+		this.owner = new Object();
+		copy.owner = new Object();
+		return copy;
+	}
+
 	public EditTree(String s) {
-		this.size = s.length();
-		if (s.length() == 0) {
-			//build-empty
-			this.root = Node.NULL_NODE;
-		} else if (s.length() == 1) {
-			//build-single
-			Node newNode = new Node(s.charAt(s.length() / 2));
-			this.root = newNode;
-		} else if (s.length() == 2) {
-			//build-two
-			Node newNode = new Node(s.charAt(1));
-			newNode.rank = 1;
-			newNode.balance = Code.LEFT;
-			this.root = newNode;
-			root.left = new EditTree(s.substring(0, s.length() / 2)).root;
-		} else {
-			//build-recursive
-			Node newNode = new Node(s.charAt(s.length() / 2));
-			newNode.rank = s.length() / 2;
-			this.root = newNode;
-			root.left = new EditTree(s.substring(0, s.length() / 2)).root;
-			root.right = new EditTree(s.substring(s.length() / 2 + 1, s.length())).root;
+		this((CharSequence) s);
+	}
+
+	public EditTree(CharSequence s) {
+		this(s, 0, s.length());
+	}
+
+	public EditTree(CharSequence s, int start, int end) {
+		if (start < 0 || end > s.length() || start > end) {
+			//build-bounds
+			throw new IndexOutOfBoundsException("Invalid range for the tree contents.");
+		}
+		this.root = BuildTask.build(s, start, end, this, BUILD_CUTOFF);
+		this.size = end - start;
+	}
+
+	public EditTree(char[] chars) {
+		this(chars, 0, chars.length);
+	}
+
+	public EditTree(char[] chars, int offset, int count) {
+		this(CharBuffer.wrap(chars, offset, count), 0, count);
+	}
+
+	public static EditTree readFrom(Reader reader) throws IOException {
+		EditTree tree = new EditTree();
+		Node head = new Node('\0');
+		Node tail = head;
+		int count = 0;
+		char[] buffer = new char[READ_BUFFER_SIZE];
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			//append-to-vine
+			for (int i = 0; i < read; i++) {
+				Node node = tree.newNode(buffer[i]);
+				tail.right = node;
+				tail = node;
+			}
+			count += read;
 		}
+		tail.right = Node.NULL_NODE;
+		tree.root = new Node.VineBuilder(head.right, tree).build(count);
+		tree.size = count;
+		return tree;
+	}
+
+	public static EditTree readFrom(InputStream in, Charset charset) throws IOException {
+		return readFrom(new InputStreamReader(in, charset));
+	}
+
+	public static EditTree readFrom(Path path, Charset charset) throws IOException {
+		try (InputStream in = Files.newInputStream(path)) {
+			return readFrom(in, charset);
+		}
+	}
+
+	public static EditTree readFrom(Path path) throws IOException {
+		return readFrom(path, StandardCharsets.UTF_8);
 	}
 
 	@Override
 	public String toString() {
-		return root.generateString();
+		return new String(toCharArray());
+	}
+
+	public char[] toCharArray() {
+		return toCharArray(FILL_CUTOFF);
+	}
+
+	char[] toCharArray(int cutoff) {
+		char[] chars = new char[size];
+		FillTask task = new FillTask(root, size, chars, 0, cutoff);
+		if (size <= cutoff) {
+			//too-small-to-fork
+			task.compute();
+		} else {
+			ForkJoinPool.commonPool().invoke(task);
+		}
+		return chars;
+	}
+
+	public void appendTo(Appendable out) throws IOException {
+		appendTo(out, 0, size);
+	}
+
+	public void appendTo(Appendable out, int pos, int length) throws IOException {
+		if (pos + length > size || pos < 0 || length < 0) {
+			throw new IndexOutOfBoundsException("Range [" + pos + ", " + (pos + length) + ") is outside the tree.");
+		}
+		if (out instanceof StringBuilder || out instanceof CharBuffer) {
+			//append-in-place
+			if (out instanceof StringBuilder) {
+				StringBuilder sb = (StringBuilder) out;
+				sb.ensureCapacity(sb.length() + length);
+			}
+			root.appendTo(pos, pos + length, out);
+			return;
+		}
+		CharBuffer view = APPEND_BUFFER.get();
+		if (view == null) {
+			view = CharBuffer.allocate(APPEND_BUFFER_SIZE);
+		}
+		//checked-out, so a writer that calls back in gets its own
+		APPEND_BUFFER.set(null);
+		try {
+			//stream-through-small-buffer
+			for (int done = 0; done < length; done += APPEND_BUFFER_SIZE) {
+				int count = Math.min(APPEND_BUFFER_SIZE, length - done);
+				root.fill(pos + done, pos + done + count, view.array(), 0);
+				if (out instanceof Writer) {
+					((Writer) out).write(view.array(), 0, count);
+				} else {
+					out.append(view, 0, count);
+				}
+			}
+		} finally {
+			APPEND_BUFFER.set(view);
+		}
+	}
+
+	public void writeTo(Writer out) throws IOException {
+		appendTo(out, 0, size);
+	}
+
+	public void writeTo(WritableByteChannel channel, Charset charset) throws IOException {
+		ChannelEncoder encoder = new ChannelEncoder(channel, charset, 1, WRITE_BUFFER_SIZE);
+		CharBuffer chars = CharBuffer.allocate(WRITE_BUFFER_SIZE);
+		for (int done = 0; done < size; done += chars.limit()) {
+			chars.clear();
+			chars.limit(Math.min(chars.capacity(), size - done));
+			root.fill(done, done + chars.limit(), chars.array(), 0);
+			encoder.write(chars);
+		}
+		encoder.finish();
+	}
+
+	public void writeTo(Path path, Charset charset) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeTo(channel, charset);
+		}
+	}
+
+	public void writeTo(Path path) throws IOException {
+		writeTo(path, StandardCharsets.UTF_8);
+	}
+
+	public void getChars(int pos, int length, char[] dst, int dstOffset) throws IndexOutOfBoundsException {
+		if (pos + length > size || pos < 0 || length < 0) {
+			throw new IndexOutOfBoundsException("Range [" + pos + ", " + (pos + length) + ") is outside the tree.");
+		}
+		if (dstOffset + length > dst.length || dstOffset < 0) {
+			throw new IndexOutOfBoundsException("Destination cannot hold " + length + " chars at " + dstOffset + ".");
+		}
+		root.fill(pos, pos + length, dst, dstOffset);
 	}
 
 	public int size() {
 		return this.size;
 	}
 
+	@Override
+	public int length() {
+		return this.size;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return get(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (end < start) {
+			throw new IndexOutOfBoundsException("Sequence end " + end + " is before start " + start + ".");
+		}
+		return get(start, end - start);
+	}
+
+	@Override
+	public IntStream chars() {
+		//fails fast like iterator(); snapshot().chars() to stream while editing
+		return StreamSupport.intStream(spliterator(), false);
+	}
+
+	public Spliterator.OfInt spliterator() {
+		return new CharSpliterator(this, modCount, 0, size);
+	}
+
+	public PrimitiveIterator.OfInt iterator() {
+		return new CharIterator(this, 0, size);
+	}
+
+	public PrimitiveIterator.OfInt iterator(int from) throws IndexOutOfBoundsException {
+		if (from > size || from < 0) {
+			throw new IndexOutOfBoundsException("Iterator start " + from + " is outside the tree.");
+		}
+		return new CharIterator(this, from, size);
+	}
+
+	public Cursor cursor() {
+		return cursor(0);
+	}
+
+	public Cursor cursor(int pos) throws IndexOutOfBoundsException {
+		Cursor cursor = new Cursor();
+		cursor.moveTo(pos);
+		if (cursors == null) {
+			cursors = new ArrayList<>();
+		}
+		cursors.add(new WeakReference<>(cursor));
+		return cursor;
+	}
+
+	//cursors are anchors: text inserted at or before one pushes it along,
+	//and a deleted span pulls the cursors inside it to its start
+	private void moveCursors(int pos, int removed, int added) {
+		if (cursors == null) {
+			return;
+		}
+		for (int i = cursors.size() - 1; i >= 0; i--) {
+			Cursor cursor = cursors.get(i).get();
+			if (cursor == null) {
+				//drop-collected
+				cursors.set(i, cursors.get(cursors.size() - 1));
+				cursors.remove(cursors.size() - 1);
+			} else if (cursor.pos >= pos + removed) {
+				cursor.pos += added - removed;
+			} else if (cursor.pos > pos) {
+				cursor.pos = pos;
+			}
+		}
+	}
+
+	public int indexOf(CharSequence pattern) {
+		return indexOf(pattern, 0);
+	}
+
+	public int indexOf(CharSequence pattern, int from) {
+		from = Math.max(from, 0);
+		if (from + pattern.length() > size) {
+			return pattern.length() == 0 ? size : -1;
+		}
+		if (pattern.length() == 0) {
+			return from;
+		}
+		int found = new Horspool(pattern, false, new CharIterator(this, from, size)).find();
+		return found < 0 ? -1 : from + found;
+	}
+
+	public int lastIndexOf(CharSequence pattern) {
+		return lastIndexOf(pattern, size);
+	}
+
+	public int lastIndexOf(CharSequence pattern, int from) {
+		int start = Math.min(from, size - pattern.length());
+		if (start < 0) {
+			return -1;
+		}
+		if (pattern.length() == 0) {
+			return start;
+		}
+		//match-the-reversed-pattern-backwards
+		int end = start + pattern.length();
+		int found = new Horspool(pattern, true, new CharIterator(this, 0, end, true)).find();
+		return found < 0 ? -1 : end - found - pattern.length();
+	}
+
+	public int findAll(CharSequence pattern, int[] positions) {
+		return findAll(pattern, 0, positions);
+	}
+
+	public int findAll(CharSequence pattern, int from, int[] positions) throws IndexOutOfBoundsException {
+		if (from > size || from < 0) {
+			throw new IndexOutOfBoundsException("Search start " + from + " is outside the tree.");
+		}
+		if (pattern.length() == 0) {
+			throw new IllegalArgumentException("Cannot search for an empty pattern.");
+		}
+		Horspool matcher = new Horspool(pattern, false, new CharIterator(this, from, size));
+		int count = 0;
+		while (count < positions.length) {
+			int found = matcher.find();
+			if (found < 0) {
+				break;
+			}
+			positions[count++] = from + found;
+		}
+		return count;
+	}
+
+	public int count(CharSequence pattern) {
+		return search(pattern, false, SEARCH_CUTOFF).count;
+	}
+
+	public int[] parallelFindAll(CharSequence pattern) {
+		SearchTask.Matches matches = search(pattern, true, SEARCH_CUTOFF);
+		return Arrays.copyOf(matches.positions, matches.count);
+	}
+
+	SearchTask.Matches search(CharSequence pattern, boolean collect, int cutoff) {
+		if (pattern.length() == 0) {
+			throw new IllegalArgumentException("Cannot search for an empty pattern.");
+		}
+		SearchTask task = new SearchTask(this, pattern, collect, cutoff, root, 0, size);
+		if (size <= cutoff) {
+			//too-small-to-fork
+			return task.compute();
+		}
+		return ForkJoinPool.commonPool().invoke(task);
+	}
+
 	public void add(char ch) {
 		add(ch, size);
 	}
@@ -82,20 +419,118 @@ public class EditTree {
 		if (pos > this.size() || pos < 0) {
 			//add-bounds
 			throw new IndexOutOfBoundsException("The given position is greater than the size of the tree.");
-		} else {
-			//add-delegate
-			root = root.insert(ch, pos).myNode;
+		}
+		int at = pos;
+		Node node = root;
+		int depth = 0;
+		while (node != Node.NULL_NODE) {
+			boolean goLeft = pos <= node.rank;
+			node = descend(path, wentLeft, depth++, node, goLeft);
+			if (goLeft) {
+				//rank++left
+				node.rank++;
+				node = node.left;
+			} else {
+				pos -= node.rank + 1;
+				node = node.right;
+			}
+		}
+		insertLeaf(path, wentLeft, depth, ch);
+		moveCursors(at, 0, 1);
+	}
+
+	//hangs a new leaf below path[depth - 1], whose ancestors are writable and already counted;
+	//returns the shallowest depth where a rotation replaced the path's node, or MAX_PATH
+	private int insertLeaf(Node[] path, boolean[] wentLeft, int depth, char ch) {
+		//leaf-insert
+		Node leaf = newNode(ch);
+		leaf.refresh(this);
+		relink(path, wentLeft, depth, leaf);
+		path[depth] = leaf;
+		int rotated = MAX_PATH;
+		boolean grew = true;
+		for (int d = depth - 1; d >= 0; d--) {
+			Node parent = path[d];
+			if (grew) {
+				grew = parent.balance == Node.Code.SAME;
+				Node balanced = parent.rebalanceFromInsert(wentLeft[d] ? Node.Code.LEFT : Node.Code.RIGHT, this);
+				if (balanced != parent) {
+					rotated = d;
+					relink(path, wentLeft, d, balanced);
+					parent = balanced;
+				}
+			}
+			//counts-change-to-root
+			parent.refresh(this);
 		}
 		this.size++;
+		this.modCount++;
+		return rotated;
+	}
+
+	private Node descend(Node[] path, boolean[] wentLeft, int depth, Node node, boolean goLeft) {
+		Node mutable = node.mutableFor(this);
+		relink(path, wentLeft, depth, mutable);
+		path[depth] = mutable;
+		wentLeft[depth] = goLeft;
+		return mutable;
+	}
+
+	private void relink(Node[] path, boolean[] wentLeft, int depth, Node child) {
+		if (depth == 0) {
+			root = child;
+		} else if (wentLeft[depth - 1]) {
+			path[depth - 1].left = child;
+		} else {
+			path[depth - 1].right = child;
+		}
+	}
+
+	public void add(CharSequence text) {
+		add(text, size);
+	}
+
+	public void add(CharSequence text, int pos) throws IndexOutOfBoundsException {
+		if (pos > this.size() || pos < 0) {
+			//add-bounds
+			throw new IndexOutOfBoundsException("The given position is greater than the size of the tree.");
+		}
+		int length = text.length();
+		if (length == 0) {
+			return;
+		}
+		if (text == this) {
+			//the split below would cut the text in half
+			text = snapshot();
+		}
+		SplitInfo parts = Node.split(root, root.fastHeight(), size, pos, this);
+		//first-and-last-chars-are-join-keys
+		Node first = newNode(text.charAt(0));
+		NodeInfo right = new NodeInfo(parts.right, parts.rightHeight);
+		if (length > 1) {
+			Node middle = BuildTask.build(text, 1, length - 1, this, BUILD_CUTOFF);
+			Node last = newNode(text.charAt(length - 1));
+			right = Node.join(middle, Node.heightOf(length - 2), length - 2, last, parts.right, parts.rightHeight, this);
+		}
+		root = Node.join(parts.left, parts.leftHeight, pos, first, right.myNode, right.height, this).myNode;
+		this.size += length;
+		this.modCount++;
+		moveCursors(pos, 0, length);
 	}
 
 	public String toRankString() {
-		String myString = root.toRankString();
-		if (!myString.isEmpty()) {
+		return bracketed(false);
+	}
+
+	private String bracketed(boolean withBalance) {
+		StringBuilder sb = new StringBuilder(size * 6 + 2);
+		sb.append('[');
+		root.appendRanks(sb, withBalance);
+		if (sb.length() > 1) {
 			//drop-tail
-			myString = myString.substring(0, myString.length() - 2);
+			sb.setLength(sb.length() - 2);
 		}
-		return "[" + myString + "]";
+		return sb.append(']').toString();
 	}
 
 	public char get(int pos) throws IndexOutOfBoundsException {
@@ -115,12 +550,7 @@ public class EditTree {
 	}
 
 	public String toDebugString() {
-		String myString = root.toDebugString();
-		if (!myString.isEmpty()) {
-			//drop-tail
-			myString = myString.substring(0, myString.length() - 2);
-		}
-		return "[" + myString + "]";
+		return bracketed(true);
 	}
 
 	public int totalRotationCount() {
@@ -140,34 +570,540 @@ public class EditTree {
 			//delete-bounds
 			throw new IndexOutOfBoundsException();
 		}
-		NodeInfo deleteInfo = root.delete(pos);
+		int at = pos;
+		Node node = root;
+		int depth = 0;
+		while (pos != node.rank) {
+			boolean goLeft = pos < node.rank;
+			node = descend(path, wentLeft, depth++, node, goLeft);
+			if (goLeft) {
+				//step-left
+				node.rank--;
+				node = node.left;
+			} else {
+				//step-right
+				pos -= node.rank + 1;
+				node = node.right;
+			}
+		}
+		char deleted = node.data;
+		removeNode(path, wentLeft, depth, node);
+		moveCursors(at, 1, 0);
+		return deleted;
+	}
+
+	//unlinks node from below path[depth - 1], whose ancestors are writable and already counted;
+	//returns the shallowest depth where a rotation replaced the path's node, or MAX_PATH
+	private int removeNode(Node[] path, boolean[] wentLeft, int depth, Node node) {
+		if (node.hasLeft() && node.hasRight()) {
+			//swap-successor
+			Node target = descend(path, wentLeft, depth++, node, false);
+			node = target.right;
+			while (node.hasLeft()) {
+				node = descend(path, wentLeft, depth++, node, true);
+				node.rank--;
+				node = node.left;
+			}
+			target.data = node.data;
+		}
 		//delete-relink
-		root = deleteInfo.myNode;
-		return deleteInfo.deletedNode.data;
+		relink(path, wentLeft, depth, node.hasLeft() ? node.left : node.right);
+		int rotated = MAX_PATH;
+		boolean shrank = true;
+		for (int d = depth - 1; d >= 0; d--) {
+			Node parent = path[d];
+			if (shrank) {
+				shrank = parent.shrinksFromDelete(wentLeft[d]);
+				Node balanced = wentLeft[d] ? parent.rightRebalanceFromDelete(this) : parent.leftRebalanceFromDelete(this);
+				if (balanced != parent) {
+					rotated = d;
+					relink(path, wentLeft, d, balanced);
+					parent = balanced;
+				}
+			}
+			//counts-change-to-root
+			parent.refresh(this);
+		}
+		this.size--;
+		this.modCount++;
+		return rotated;
+	}
+
+	public EditTree delete(int pos, int length) throws IndexOutOfBoundsException {
+		if (pos + length > size || pos < 0 || length < 0) {
+			//range-bounds
+			throw new IndexOutOfBoundsException("Range [" + pos + ", " + (pos + length) + ") is outside the tree.");
+		}
+		EditTree tail = cut(pos + length);
+		EditTree removed = cut(pos);
+		join(tail);
+		moveCursors(pos, length, 0);
+		return removed;
+	}
+
+	public EditTree split(int pos) throws IndexOutOfBoundsException {
+		if (pos > size || pos < 0) {
+			//split-bounds
+			throw new IndexOutOfBoundsException("Split position " + pos + " is outside the tree.");
+		}
+		EditTree tail = cut(pos);
+		moveCursors(pos, tail.size, 0);
+		return tail;
+	}
+
+	private EditTree cut(int pos) {
+		SplitInfo parts = Node.split(root, root.fastHeight(), size, pos, this);
+		EditTree tail = new EditTree();
+		//halves-are-disjoint
+		tail.owner = this.owner;
+		tail.summaries = this.summaries;
+		tail.unicode = this.unicode;
+		tail.root = parts.right;
+		tail.size = size - pos;
+		this.root = parts.left;
+		this.size = pos;
+		this.modCount++;
+		return tail;
+	}
+
+	public void concatenate(EditTree other) {
+		if (other == this) {
+			throw new IllegalArgumentException("A tree cannot be concatenated with itself.");
+		}
+		int at = this.size;
+		int length = other.size;
+		join(other);
+		other.moveCursors(0, length, 0);
+		moveCursors(at, 0, length);
+	}
+
+	private void join(EditTree other) {
+		if (other.size == 0) {
+			return;
+		}
+		if (!Arrays.equals(other.summaries, this.summaries) || other.unicode != this.unicode) {
+			//adopt-our-summaries
+			other.summaries = this.summaries;
+			other.unicode = this.unicode;
+			other.root = other.reindex(other.root);
+		}
+		if (other.owner != this.owner) {
+			//only a split half shares our token, and nothing else can see its nodes
+			this.owner = new Object();
+		}
+		//first-char-is-join-key
+		Node mid = newNode(other.delete(0));
+		Node right = other.root;
+		NodeInfo joined = Node.join(root, root.fastHeight(), size, mid, right, right.fastHeight(), this);
+		this.root = joined.myNode;
+		this.size += other.size + 1;
+		other.root = Node.NULL_NODE;
+		other.size = 0;
+		this.modCount++;
+		other.modCount++;
 	}
 
 	public String get(int pos, int length) throws IndexOutOfBoundsException {
-		if (pos + length > size || pos < 0) {
+		if (pos + length > size || pos < 0 || length < 0) {
 			//slice-bounds
 			throw new IndexOutOfBoundsException("Index out of bounds for get method :(");
 		}
-		StringBuilder sb = new StringBuilder();
+		char[] chars = new char[length];
 		//slice-build
-		root.get(pos, pos + length - 1, sb);
-		return sb.toString();
+		root.fill(pos, pos + length, chars, 0);
+		return new String(chars);
 	}
 
-	public void show() {
-		if (this.display == null) {
-			this.display = new DisplayableBinaryTree(this, 960, 1080, true);
-		} else {
-			this.display.show(true);
+	public long hash() {
+		return root.hash;
+	}
+
+	public long hash(int pos, int length) throws IndexOutOfBoundsException {
+		if (pos + length > size || pos < 0 || length < 0) {
+			throw new IndexOutOfBoundsException("Range [" + pos + ", " + (pos + length) + ") is outside the tree.");
+		}
+		return root.rangeHash(size, pos, pos + length);
+	}
+
+	public boolean regionEquals(int pos, EditTree other, int otherPos, int length) {
+		if (pos + length > size || pos < 0 || otherPos + length > other.size || otherPos < 0 || length < 0) {
+			//out-of-range regions never match
+			return false;
+		}
+		//fingerprints collide with probability about length / 2^61
+		return hash(pos, length) == other.hash(otherPos, length);
+	}
+
+	public <S> void register(Summary<S> summary) {
+		if (slotOf(summary) >= 0) {
+			return;
+		}
+		Summary<?>[] registered = Arrays.copyOf(summaries, summaries.length + 1);
+		registered[summaries.length] = summary;
+		this.summaries = registered;
+		//fill-new-slot
+		this.root = reindex(root);
+		this.modCount++;
+	}
+
+	private Node reindex(Node node) {
+		if (node == Node.NULL_NODE) {
+			return node;
+		}
+		//a tracking change swaps the node class, even on nodes we own
+		node = node.countsUnicode() == this.unicode ? node.mutableFor(this) : node.copyFor(this);
+		node.left = reindex(node.left);
+		node.right = reindex(node.right);
+		node.refresh(this);
+		return node;
+	}
+
+	private int slotOf(Summary<?> summary) {
+		for (int slot = 0; slot < summaries.length; slot++) {
+			if (summaries[slot] == summary) {
+				return slot;
+			}
 		}
+		return -1;
+	}
+
+	public <S> S summarize(Summary<S> summary) {
+		return summarize(summary, 0, size);
+	}
+
+	public <S> S summarize(Summary<S> summary, int pos, int length) throws IndexOutOfBoundsException {
+		if (pos + length > size || pos < 0 || length < 0) {
+			throw new IndexOutOfBoundsException("Range [" + pos + ", " + (pos + length) + ") is outside the tree.");
+		}
+		int slot = slotOf(summary);
+		if (slot < 0) {
+			throw new IllegalArgumentException("The summary is not registered on this tree.");
+		}
+		return root.summarize(summary, slot, size, pos, pos + length);
+	}
+
+	public int lineCount() {
+		return root.newlines + 1;
+	}
+
+	public int lineStart(int line) throws IndexOutOfBoundsException {
+		if (line >= lineCount() || line < 0) {
+			//line-bounds
+			throw new IndexOutOfBoundsException("Line " + line + " is outside the tree.");
+		}
+		return line == 0 ? 0 : root.newlinePosition(line) + 1;
+	}
+
+	public int lineOf(int pos) throws IndexOutOfBoundsException {
+		if (pos > size || pos < 0) {
+			throw new IndexOutOfBoundsException("Position " + pos + " is outside the tree.");
+		}
+		return root.newlinesBefore(pos);
+	}
+
+	public String getLine(int line) throws IndexOutOfBoundsException {
+		int start = lineStart(line);
+		//drop-terminator
+		int end = line + 1 < lineCount() ? root.newlinePosition(line + 1) : size;
+		return get(start, end - start);
+	}
+
+	public void trackUnicodeOffsets() {
+		if (this.unicode) {
+			return;
+		}
+		this.unicode = true;
+		this.root = reindex(this.root);
+		this.modCount++;
+	}
+
+	private void requireUnicode() {
+		if (!this.unicode) {
+			throw new IllegalStateException("Unicode offsets are not tracked; call trackUnicodeOffsets() first.");
+		}
+	}
+
+	private int codePointStart(int pos) {
+		if (pos > size || pos < 0) {
+			throw new IndexOutOfBoundsException("Position " + pos + " is outside the tree.");
+		}
+		//inside-a-pair-rounds-down
+		boolean insidePair = pos > 0 && pos < size && Character.isLowSurrogate(get(pos))
+				&& Character.isHighSurrogate(get(pos - 1));
+		return insidePair ? pos - 1 : pos;
+	}
+
+	public int codePointCount() {
+		requireUnicode();
+		return UnicodeNode.measure(root, false);
+	}
+
+	public int utf8Length() {
+		requireUnicode();
+		return UnicodeNode.measure(root, true);
+	}
+
+	public int charOffsetToCodePoint(int pos) throws IndexOutOfBoundsException {
+		requireUnicode();
+		return UnicodeNode.before(root, codePointStart(pos), false);
+	}
+
+	public int codePointToCharOffset(int codePoint) throws IndexOutOfBoundsException {
+		if (codePoint > codePointCount() || codePoint < 0) {
+			throw new IndexOutOfBoundsException("Code point " + codePoint + " is outside the tree.");
+		}
+		return codePoint == codePointCount() ? size : UnicodeNode.position(root, codePoint, false);
+	}
+
+	public int charOffsetToUtf8(int pos) throws IndexOutOfBoundsException {
+		requireUnicode();
+		return UnicodeNode.before(root, codePointStart(pos), true);
+	}
+
+	public int utf8ToCharOffset(int bytes) throws IndexOutOfBoundsException {
+		if (bytes > utf8Length() || bytes < 0) {
+			throw new IndexOutOfBoundsException("Byte offset " + bytes + " is outside the tree.");
+		}
+		return bytes == utf8Length() ? size : UnicodeNode.position(root, bytes, true);
+	}
+
+	Node newNode(char ch) {
+		Node node = this.unicode ? new UnicodeNode(ch) : new Node(ch);
+		node.owner = this.owner;
+		return node;
+	}
+
+	public void show() {
+		this.shown = true;
+		DisplayableBinaryTree.showTree(this);
 	}
 
 	public void close() {
-		if (this.display != null) {
-			this.display.close();
+		if (!this.shown) {
+			return;
+		}
+		this.shown = false;
+		DisplayableBinaryTree.closeTree(this);
+	}
+
+	public class Cursor {
+		//path[depth - 1] holds the char at pos, or the last char when pos == size
+		private final Node[] path = new Node[MAX_PATH];
+		private final boolean[] wentLeft = new boolean[MAX_PATH];
+		private int depth;
+		private int pos;
+		private int expectedModCount;
+
+		private Cursor() {
+		}
+
+		public int position() {
+			return pos;
+		}
+
+		public void moveTo(int pos) throws IndexOutOfBoundsException {
+			if (pos > size || pos < 0) {
+				throw new IndexOutOfBoundsException("Cursor position " + pos + " is outside the tree.");
+			}
+			this.pos = pos;
+			seekFrom(0);
+		}
+
+		//path[0, keep) is still valid and the subtree of path[keep - 1] holds the target
+		private void seekFrom(int keep) {
+			expectedModCount = modCount;
+			depth = 0;
+			if (size == 0) {
+				return;
+			}
+			int offset = Math.min(pos, size - 1);
+			Node node = root;
+			if (keep > 0) {
+				depth = keep - 1;
+				node = path[depth];
+				for (int d = 0; d < depth; d++) {
+					if (!wentLeft[d]) {
+						offset -= path[d].rank + 1;
+					}
+				}
+			}
+			while (true) {
+				path[depth++] = node;
+				if (offset == node.rank) {
+					return;
+				}
+				wentLeft[depth - 1] = offset < node.rank;
+				if (offset < node.rank) {
+					node = node.left;
+				} else {
+					offset -= node.rank + 1;
+					node = node.right;
+				}
+			}
+		}
+
+		private void sync() {
+			if (expectedModCount != modCount) {
+				seekFrom(0);
+			}
+		}
+
+		public boolean hasNext() {
+			return pos < size;
+		}
+
+		public boolean hasPrevious() {
+			return pos > 0;
+		}
+
+		public char get() throws IndexOutOfBoundsException {
+			sync();
+			if (pos == size) {
+				throw new IndexOutOfBoundsException("Cursor is at the end of the tree.");
+			}
+			return path[depth - 1].data;
+		}
+
+		public char next() {
+			sync();
+			if (pos == size) {
+				throw new NoSuchElementException();
+			}
+			Node node = path[depth - 1];
+			char ch = node.data;
+			pos++;
+			if (pos == size) {
+				//the last char stays on the path
+				return ch;
+			}
+			if (node.right != Node.NULL_NODE) {
+				//leftmost-of-right
+				wentLeft[depth - 1] = false;
+				node = node.right;
+				path[depth++] = node;
+				while (node.left != Node.NULL_NODE) {
+					wentLeft[depth - 1] = true;
+					node = node.left;
+					path[depth++] = node;
+				}
+			} else {
+				//climb-past-right-children
+				Node child;
+				do {
+					child = path[--depth];
+				} while (path[depth - 1].right == child);
+			}
+			return ch;
+		}
+
+		public char previous() {
+			sync();
+			if (pos == 0) {
+				throw new NoSuchElementException();
+			}
+			pos--;
+			if (pos == size - 1) {
+				//from-the-end
+				return path[depth - 1].data;
+			}
+			Node node = path[depth - 1];
+			if (node.left != Node.NULL_NODE) {
+				//rightmost-of-left
+				wentLeft[depth - 1] = true;
+				node = node.left;
+				path[depth++] = node;
+				while (node.right != Node.NULL_NODE) {
+					wentLeft[depth - 1] = false;
+					node = node.right;
+					path[depth++] = node;
+				}
+			} else {
+				//climb-past-left-children
+				Node child;
+				do {
+					child = path[--depth];
+				} while (path[depth - 1].left == child);
+			}
+			return path[depth - 1].data;
+		}
+
+		//copies shared nodes on the path and adjusts the ancestors' ranks, top down
+		private void claimPath(int rankChange) {
+			for (int d = 0; d < depth; d++) {
+				Node node = path[d].mutableFor(EditTree.this);
+				if (node != path[d]) {
+					relink(path, wentLeft, d, node);
+					path[d] = node;
+				}
+				if (d < depth - 1 && wentLeft[d]) {
+					node.rank += rankChange;
+				}
+			}
+		}
+
+		public void insert(char ch) {
+			sync();
+			claimPath(1);
+			int at = pos;
+			int keep;
+			if (pos < size) {
+				//new-char-goes-just-before-ours
+				Node node = path[depth - 1];
+				node.rank++;
+				wentLeft[depth - 1] = true;
+				int leafDepth = depth;
+				Node next = node.left;
+				while (next != Node.NULL_NODE) {
+					next = descend(path, wentLeft, leafDepth++, next, false);
+					next = next.right;
+				}
+				keep = Math.min(insertLeaf(path, wentLeft, leafDepth, ch), depth);
+			} else {
+				//after-the-last-char
+				if (depth > 0) {
+					wentLeft[depth - 1] = false;
+				}
+				keep = Math.min(insertLeaf(path, wentLeft, depth, ch), depth + 1);
+			}
+			moveCursors(at, 0, 1);
+			seekFrom(keep);
+		}
+
+		public void insert(CharSequence text) {
+			add(text, pos);
+		}
+
+		public char delete() throws IndexOutOfBoundsException {
+			sync();
+			if (pos == size) {
+				throw new IndexOutOfBoundsException("Cursor is at the end of the tree.");
+			}
+			claimPath(-1);
+			int d = depth - 1;
+			Node node = path[d];
+			char deleted = node.data;
+			int keep = d;
+			if (node.hasLeft() && node.hasRight()) {
+				//the successor moves into our node
+				keep = depth;
+			} else if (!node.hasRight() && pos < size - 1) {
+				//the successor is the nearest ancestor we sit left of
+				while (!wentLeft[keep - 1]) {
+					keep--;
+				}
+			}
+			keep = Math.min(removeNode(path, wentLeft, d, node), keep);
+			moveCursors(pos, 1, 0);
+			seekFrom(keep);
+			return deleted;
+		}
+
+		public char backspace() throws IndexOutOfBoundsException {
+			if (pos == 0) {
+				throw new IndexOutOfBoundsException("Cursor is at the start of the tree.");
+			}
+			previous();
+			return delete();
 		}
 	}
 }
@@ -0,0 +1,222 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeAllocationTest {
+
+	private static final int OPS = 20000;
+	private static final long SLACK = 4096;
+
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(sunBean.isThreadAllocatedMemorySupported());
+		sunBean.setThreadAllocatedMemoryEnabled(true);
+		return sunBean;
+	}
+
+	private static long nodeBytes(com.sun.management.ThreadMXBean bean, long thread) {
+		Node[] nodes = new Node[OPS];
+		long before = bean.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < OPS; i++) {
+			nodes[i] = new Node('n');
+		}
+		//round up to the object alignment
+		return ((bean.getThreadAllocatedBytes(thread) - before) / OPS + 7) & ~7;
+	}
+
+	private static int[] positions(Random rand, int startSize, int delta) {
+		int[] positions = new int[OPS];
+		int size = startSize;
+		for (int i = 0; i < OPS; i++) {
+			positions[i] = rand.nextInt(delta > 0 ? size + 1 : size);
+			size += delta;
+		}
+		return positions;
+	}
+
+	@Test
+	public void test101AddAllocatesOnlyTheNewNode() {
+		com.sun.management.ThreadMXBean bean = allocationBean();
+		long thread = Thread.currentThread().getId();
+		long nodeBytes = nodeBytes(bean, thread);
+		Random rand = new Random(7);
+		EditTree t = new EditTree();
+		int[] warmup = positions(rand, 0, 1);
+		for (int i = 0; i < OPS; i++) {
+			t.add('w', warmup[i]);
+		}
+		int[] positions = positions(rand, t.size(), 1);
+		long before = bean.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < OPS; i++) {
+			t.add('x', positions[i]);
+		}
+		long allocated = bean.getThreadAllocatedBytes(thread) - before;
+		assertTrue(allocated <= OPS * nodeBytes + SLACK);
+		assertEquals(2 * OPS, t.size());
+		assertTrue(t.balanceCodesAreCorrect());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+	}
+
+	@Test
+	public void test102DeleteAllocatesNothing() {
+		com.sun.management.ThreadMXBean bean = allocationBean();
+		long thread = Thread.currentThread().getId();
+		Random rand = new Random(9);
+		char[] text = new char[3 * OPS];
+		for (int i = 0; i < text.length; i++) {
+			text[i] = (char) ('a' + rand.nextInt(26));
+		}
+		EditTree t = new EditTree(text);
+		int[] warmup = positions(rand, t.size(), -1);
+		for (int i = 0; i < OPS; i++) {
+			t.delete(warmup[i]);
+		}
+		int[] positions = positions(rand, t.size(), -1);
+		long before = bean.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < OPS; i++) {
+			t.delete(positions[i]);
+		}
+		long allocated = bean.getThreadAllocatedBytes(thread) - before;
+		assertTrue(allocated <= SLACK);
+		assertEquals(OPS, t.size());
+		assertTrue(t.balanceCodesAreCorrect());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+	}
+
+	@Test
+	public void test103SnapshotCopiesOnlyThePath() {
+		com.sun.management.ThreadMXBean bean = allocationBean();
+		long thread = Thread.currentThread().getId();
+		long nodeBytes = nodeBytes(bean, thread);
+		EditTree t = new EditTree(new char[1 << 16]);
+		EditTree copy = t.snapshot();
+		long before = bean.getThreadAllocatedBytes(thread);
+		t.add('x', 1 << 15);
+		long allocated = bean.getThreadAllocatedBytes(thread) - before;
+		//one copy per level plus the new leaf
+		assertTrue(allocated <= (t.slowHeight() + 4) * nodeBytes + SLACK);
+		assertEquals(1 << 16, copy.size());
+		assertEquals('x', t.get(1 << 15));
+	}
+
+	@Test
+	public void test104ViewportReadsAllocateNothing() throws IOException {
+		com.sun.management.ThreadMXBean bean = allocationBean();
+		long thread = Thread.currentThread().getId();
+		EditTree t = new EditTree(new char[1 << 16]);
+		char[] viewport = new char[4000];
+		Writer sink = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) {
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		//first call sets up the reused buffer
+		t.appendTo(sink, 0, 4000);
+		long before = bean.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < 1000; i++) {
+			t.getChars(i * 37, viewport.length, viewport, 0);
+			t.appendTo(sink, i * 37, viewport.length);
+		}
+		long allocated = bean.getThreadAllocatedBytes(thread) - before;
+		assertTrue(allocated <= SLACK);
+	}
+
+	@Test
+	public void test105RangeDeleteKeepsLaterEditsInPlace() {
+		com.sun.management.ThreadMXBean bean = allocationBean();
+		long thread = Thread.currentThread().getId();
+		Random rand = new Random(11);
+		EditTree t = new EditTree(new char[3 * OPS]);
+		t.delete(OPS / 2, OPS);
+		int[] positions = positions(rand, t.size(), -1);
+		long before = bean.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < OPS; i++) {
+			t.delete(positions[i]);
+		}
+		long allocated = bean.getThreadAllocatedBytes(thread) - before;
+		assertTrue(allocated <= SLACK);
+		assertEquals(OPS, t.size());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void test106StreamKeepsLaterEditsInPlace() {
+		com.sun.management.ThreadMXBean bean = allocationBean();
+		long thread = Thread.currentThread().getId();
+		Random rand = new Random(13);
+		EditTree t = new EditTree(new char[2 * OPS]);
+		assertEquals(0, t.chars().sum());
+		int[] positions = positions(rand, t.size(), -1);
+		long before = bean.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < OPS; i++) {
+			t.delete(positions[i]);
+		}
+		long allocated = bean.getThreadAllocatedBytes(thread) - before;
+		assertTrue(allocated <= SLACK);
+		assertEquals(OPS, t.size());
+	}
+
+	@Test
+	public void test107TrackedDeleteAllocatesNothing() {
+		com.sun.management.ThreadMXBean bean = allocationBean();
+		long thread = Thread.currentThread().getId();
+		Random rand = new Random(17);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < OPS; i++) {
+			text.append(rand.nextBoolean() ? "\uD83D\uDE00" : "\u00E9");
+		}
+		EditTree t = new EditTree(text);
+		t.trackUnicodeOffsets();
+		int[] positions = positions(rand, t.size(), -1);
+		long before = bean.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < OPS; i++) {
+			t.delete(positions[i]);
+		}
+		long allocated = bean.getThreadAllocatedBytes(thread) - before;
+		assertTrue(allocated <= SLACK);
+		assertEquals(t.toString().getBytes(StandardCharsets.UTF_8).length, t.utf8Length());
+	}
+
+	@Test
+	public void test108CursorTypingAllocatesOnlyTheNewNodes() {
+		com.sun.management.ThreadMXBean bean = allocationBean();
+		long thread = Thread.currentThread().getId();
+		long nodeBytes = nodeBytes(bean, thread);
+		EditTree t = new EditTree(new char[OPS]);
+		EditTree.Cursor cursor = t.cursor(OPS / 2);
+		long before = bean.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < OPS; i++) {
+			cursor.insert('x');
+			if (i % 4 == 0) {
+				cursor.backspace();
+			}
+		}
+		long allocated = bean.getThreadAllocatedBytes(thread) - before;
+		assertTrue(allocated <= OPS * nodeBytes + SLACK);
+		assertEquals(OPS + OPS * 3 / 4, t.size());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+}
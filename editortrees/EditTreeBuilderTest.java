@@ -0,0 +1,135 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeBuilderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static String alphabet(int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append((char) ('a' + i % 26));
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void test101EverySizeIsBalancedWithCorrectCodes() {
+		for (int n = 0; n < 300; n++) {
+			String s = alphabet(n);
+			EditTree t = new EditTree(s);
+			assertEquals(s, t.toString());
+			assertEquals(n, t.size());
+			assertTrue(t.ranksMatchLeftSubtreeSize());
+			assertTrue("codes wrong for size " + n, t.balanceCodesAreCorrect());
+			assertEquals(t.slowHeight(), t.fastHeight());
+			assertEquals(0, t.totalRotationCount());
+		}
+	}
+
+	@Test
+	public void test102MatchesOriginalSmallShapes() {
+		assertEquals("[b1/, a0=]", new EditTree("ab").toDebugString());
+		assertEquals("[b1=, a0=, c0=]", new EditTree("abc").toDebugString());
+		assertEquals("[c2/, b1/, a0=, d0=]", new EditTree("abcd").toDebugString());
+	}
+
+	@Test
+	public void test103CharArrayAndRangeOverloads() {
+		char[] chars = "hello, world".toCharArray();
+		assertEquals("hello, world", new EditTree(chars).toString());
+		assertEquals("world", new EditTree(chars, 7, 5).toString());
+		StringBuilder sb = new StringBuilder("0123456789");
+		assertEquals("0123456789", new EditTree(sb).toString());
+		assertEquals("345", new EditTree(sb, 3, 6).toString());
+		assertEquals("", new EditTree(sb, 4, 4).toString());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void test104BadRangeRejected() {
+		new EditTree("abc", 2, 4);
+	}
+
+	@Test
+	public void test105ParallelBuildMatchesSequentialShape() {
+		for (int n : new int[] { 0, 1, 2, 7, 100, 1000, 4097 }) {
+			String s = alphabet(n);
+			EditTree sequential = new EditTree(s);
+			for (int cutoff : new int[] { 0, 1, 5, 64 }) {
+				EditTree t = new EditTree();
+				t.root = BuildTask.build(s, 0, n, t, cutoff);
+				assertEquals(sequential.toDebugString(), t.toDebugString());
+				assertEquals(sequential.lineCount(), t.lineCount());
+				assertEquals(sequential.hash(), t.hash());
+			}
+		}
+		String large = alphabet(3 * EditTree.BUILD_CUTOFF + 5);
+		EditTree t = new EditTree(large.toCharArray());
+		assertEquals(large, t.toString());
+		assertTrue(t.balanceCodesAreCorrect());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		t.add(large, 7);
+		assertEquals(large.substring(0, 7) + large + large.substring(7), t.toString());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void test201ReadFromReaderMatchesStringConstructor() throws IOException {
+		for (int n : new int[] { 0, 1, 2, 7, 8191, 8192, 8193, 50000 }) {
+			String s = alphabet(n);
+			EditTree t = EditTree.readFrom(new StringReader(s));
+			assertEquals(s, t.toString());
+			assertEquals(n, t.size());
+			assertEquals(new EditTree(s).toDebugString(), t.toDebugString());
+			assertTrue(t.balanceCodesAreCorrect());
+		}
+	}
+
+	@Test
+	public void test202ReadFromStreamDecodesCharset() throws IOException {
+		String s = "na\u00efve caf\u00e9 \u65e5\u672c \ud83d\ude00";
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		EditTree t = EditTree.readFrom(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+		assertEquals(s, t.toString());
+		t.add('!');
+		assertEquals(s + "!", t.toString());
+	}
+
+	@Test
+	public void test203ReadFromPath() throws IOException {
+		String s = alphabet(20000);
+		Path path = folder.newFile("doc.txt").toPath();
+		Files.write(path, s.getBytes(StandardCharsets.UTF_16LE));
+		assertEquals(s, EditTree.readFrom(path, StandardCharsets.UTF_16LE).toString());
+		Files.write(path, s.getBytes(StandardCharsets.UTF_8));
+		assertEquals(s, EditTree.readFrom(path).toString());
+	}
+
+	@Test
+	public void test204WriteToPathRoundTrips() throws IOException {
+		String s = alphabet(20000) + "\u65e5\ud83d\ude00\n";
+		Path path = folder.newFile("saved.txt").toPath();
+		Files.write(path, new byte[50000]);
+		new EditTree(s).writeTo(path);
+		assertEquals(s, EditTree.readFrom(path).toString());
+		new EditTree(s).writeTo(path, StandardCharsets.UTF_16LE);
+		assertEquals(s, EditTree.readFrom(path, StandardCharsets.UTF_16LE).toString());
+	}
+}
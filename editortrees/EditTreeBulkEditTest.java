@@ -0,0 +1,183 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeBulkEditTest {
+
+	private static String randomText(Random rand, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append((char) ('a' + rand.nextInt(26)));
+		}
+		return sb.toString();
+	}
+
+	private static EditTree randomTree(Random rand, String s) {
+		//reshape by deleting and re-adding so shapes are not all perfect
+		EditTree t = new EditTree(s);
+		for (int i = 0; i < s.length(); i++) {
+			int pos = rand.nextInt(s.length());
+			t.add(t.delete(pos), pos);
+		}
+		return t;
+	}
+
+	private static void assertValid(String expected, EditTree t) {
+		assertEquals(expected, t.toString());
+		assertEquals(expected.length(), t.size());
+		assertEquals(expected.length(), t.slowSize());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+		assertEquals(t.slowHeight(), t.fastHeight());
+	}
+
+	@Test
+	public void test101SplitAtEveryPosition() {
+		Random rand = new Random(1);
+		for (int n = 0; n < 40; n++) {
+			for (int pos = 0; pos <= n; pos++) {
+				EditTree t = randomTree(rand, randomText(new Random(n), n));
+				String s = t.toString();
+				EditTree tail = t.split(pos);
+				assertValid(s.substring(0, pos), t);
+				assertValid(s.substring(pos), tail);
+			}
+		}
+	}
+
+	@Test
+	public void test102ConcatenateUnevenTrees() {
+		Random rand = new Random(2);
+		int[] sizes = { 0, 1, 2, 5, 17, 100, 1000 };
+		for (int a : sizes) {
+			for (int b : sizes) {
+				String left = randomText(rand, a);
+				String right = randomText(rand, b);
+				EditTree t = randomTree(rand, left);
+				EditTree other = new EditTree(right);
+				t.concatenate(other);
+				assertValid(left + right, t);
+				assertValid("", other);
+			}
+		}
+	}
+
+	@Test
+	public void test103SplitThenRejoinRoundTrips() {
+		Random rand = new Random(3);
+		String s = randomText(rand, 5000);
+		EditTree t = new EditTree(s);
+		for (int i = 0; i < 200; i++) {
+			int pos = rand.nextInt(t.size() + 1);
+			EditTree tail = t.split(pos);
+			t.concatenate(tail);
+			assertEquals(s.length(), t.size());
+		}
+		assertValid(s, t);
+		t.add('!', 2500);
+		assertEquals('!', t.get(2500));
+	}
+
+	@Test
+	public void test104SplitLeavesSnapshotAlone() {
+		EditTree t = new EditTree("abcdefghijklmnop");
+		EditTree snapshot = t.snapshot();
+		EditTree tail = t.split(5);
+		tail.concatenate(t);
+		assertValid("fghijklmnopabcde", tail);
+		assertValid("abcdefghijklmnop", snapshot);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test105ConcatenateWithSelfRejected() {
+		EditTree t = new EditTree("abc");
+		t.concatenate(t);
+	}
+
+	@Test
+	public void test201PasteMatchesStringBuilder() {
+		Random rand = new Random(9);
+		EditTree t = new EditTree();
+		StringBuilder analog = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			String paste = randomText(rand, rand.nextInt(i % 10 == 0 ? 2000 : 20));
+			int pos = rand.nextInt(analog.length() + 1);
+			t.add(paste, pos);
+			analog.insert(pos, paste);
+			if (rand.nextBoolean() && analog.length() > 0) {
+				pos = rand.nextInt(analog.length());
+				t.delete(pos);
+				analog.deleteCharAt(pos);
+			}
+		}
+		assertValid(analog.toString(), t);
+	}
+
+	@Test
+	public void test202PasteIntoEmptyAndAppend() {
+		EditTree t = new EditTree();
+		t.add("world");
+		t.add("hello, ", 0);
+		t.add(new StringBuilder("!"));
+		t.add("", 3);
+		assertValid("hello, world!", t);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void test203PastePastEndRejected() {
+		new EditTree("abc").add("xyz", 4);
+	}
+
+	@Test
+	public void test204PasteTreeIntoItself() {
+		for (int pos = 0; pos <= 9; pos++) {
+			EditTree t = new EditTree("abcdefghi");
+			EditTree before = t.snapshot();
+			t.add(t, pos);
+			assertValid("abcdefghi".substring(0, pos) + "abcdefghi" + "abcdefghi".substring(pos), t);
+			assertValid("abcdefghi", before);
+		}
+	}
+
+	@Test
+	public void test301RangeDeleteMatchesStringBuilder() {
+		Random rand = new Random(10);
+		String s = randomText(rand, 20000);
+		EditTree t = randomTree(rand, s.substring(0, 2000));
+		t.add(s.substring(2000));
+		StringBuilder analog = new StringBuilder(s);
+		while (analog.length() > 0) {
+			int pos = rand.nextInt(analog.length());
+			int length = rand.nextInt(Math.min(analog.length() - pos, 500) + 1);
+			EditTree removed = t.delete(pos, length);
+			assertValid(analog.substring(pos, pos + length), removed);
+			analog.delete(pos, pos + length);
+			assertEquals(analog.length(), t.size());
+		}
+		assertValid("", t);
+	}
+
+	@Test
+	public void test302RangeDeleteEdges() {
+		EditTree t = new EditTree("hello, world");
+		assertEquals("", t.delete(3, 0).toString());
+		assertEquals("hello", t.delete(0, 5).toString());
+		assertEquals("world", t.delete(2, 5).toString());
+		assertValid(", ", t);
+		assertEquals(", ", t.delete(0, 2).toString());
+		assertValid("", t);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void test303RangeDeletePastEndRejected() {
+		new EditTree("abc").delete(1, 3);
+	}
+}
@@ -0,0 +1,217 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeCursorTest {
+
+	@Test
+	public void test101WalkBothWays() {
+		String s = EditTreeTestSupport.randomText(new Random(1), 1000, 8);
+		EditTree t = EditTreeTestSupport.reshaped(new Random(2), s);
+		EditTree.Cursor c = t.cursor();
+		StringBuilder forward = new StringBuilder();
+		while (c.hasNext()) {
+			assertEquals(s.charAt(c.position()), c.get());
+			forward.append(c.next());
+		}
+		assertEquals(s, forward.toString());
+		assertEquals(s.length(), c.position());
+		StringBuilder backward = new StringBuilder();
+		while (c.hasPrevious()) {
+			backward.append(c.previous());
+			assertEquals(s.charAt(c.position()), c.get());
+		}
+		assertEquals(s, backward.reverse().toString());
+		for (int i = 0; i < s.length(); i += 37) {
+			c.moveTo(i);
+			assertEquals(s.charAt(i), c.next());
+			assertEquals(s.charAt(i), c.previous());
+		}
+	}
+
+	@Test
+	public void test102TypingMatchesStringBuilder() {
+		Random rand = new Random(3);
+		EditTree t = new EditTree("some existing text");
+		StringBuilder analog = new StringBuilder("some existing text");
+		EditTree.Cursor c = t.cursor(5);
+		int caret = 5;
+		for (int i = 0; i < 5000; i++) {
+			int op = rand.nextInt(10);
+			if (op < 5) {
+				char ch = (char) ('a' + rand.nextInt(26));
+				c.insert(ch);
+				analog.insert(caret++, ch);
+			} else if (op < 7 && caret > 0) {
+				assertEquals(analog.charAt(caret - 1), c.backspace());
+				analog.deleteCharAt(--caret);
+			} else if (op < 8 && caret < analog.length()) {
+				assertEquals(analog.charAt(caret), c.delete());
+				analog.deleteCharAt(caret);
+			} else if (op < 9 && caret < analog.length()) {
+				assertEquals(analog.charAt(caret++), c.next());
+			} else if (caret > 0) {
+				assertEquals(analog.charAt(--caret), c.previous());
+			}
+			assertEquals(caret, c.position());
+		}
+		assertEquals(analog.toString(), t.toString());
+		assertTrue(t.balanceCodesAreCorrect());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+	}
+
+	@Test
+	public void test103CursorsAreAnchors() {
+		EditTree t = new EditTree("abcdef");
+		EditTree.Cursor first = t.cursor(1);
+		EditTree.Cursor second = t.cursor(6);
+		assertEquals('b', first.next());
+		second.insert("XYZ");
+		assertEquals('c', first.get());
+		first.insert('-');
+		assertEquals("ab-cdefXYZ", t.toString());
+		//an edit before a cursor carries it along with its text
+		assertEquals(10, second.position());
+		assertEquals('Z', second.previous());
+		t.delete(0, 8);
+		assertEquals(1, second.position());
+		assertEquals('Z', second.get());
+		//a cursor inside a deleted span lands at its start
+		assertEquals(0, first.position());
+		assertEquals('Y', first.get());
+		assertEquals("YZ", t.toString());
+	}
+
+	@Test
+	public void test104CursorOverSnapshot() {
+		EditTree t = new EditTree("hello world");
+		EditTree copy = t.snapshot();
+		EditTree.Cursor c = t.cursor(5);
+		c.insert(',');
+		assertEquals(' ', c.next());
+		assertEquals("hello, world", t.toString());
+		assertEquals("hello world", copy.toString());
+		assertEquals(' ', copy.cursor(5).get());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void test105NextAtEnd() {
+		new EditTree("ab").cursor(2).next();
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void test106CursorOutOfBounds() {
+		new EditTree("ab").cursor(3);
+	}
+
+	@Test
+	public void test107InsertTreeIntoItself() {
+		EditTree t = new EditTree("abc");
+		EditTree.Cursor cursor = t.cursor(2);
+		cursor.insert(t);
+		assertEquals("ababcc", t.toString());
+		assertEquals(5, cursor.position());
+		assertEquals('c', cursor.next());
+	}
+
+	@Test
+	public void test108OtherCursorsKeepTheirChar() {
+		EditTree t = new EditTree("hello world");
+		EditTree.Cursor w = t.cursor(6);
+		EditTree.Cursor typing = t.cursor(0);
+		typing.insert('>');
+		typing.insert(' ');
+		assertEquals('w', w.get());
+		t.add("big ", 8);
+		assertEquals('w', w.get());
+		EditTree tail = t.split(4);
+		assertEquals(4, w.position());
+		assertFalse(w.hasNext());
+		t.concatenate(tail);
+		assertEquals("> hello big world", t.toString());
+		assertEquals(t.size(), w.position());
+	}
+
+	@Test
+	public void test109ManyCursorsMatchStringBuilder() {
+		Random rand = new Random(9);
+		String start = EditTreeTestSupport.randomText(rand, 200, 26);
+		EditTree t = EditTreeTestSupport.reshaped(rand, start);
+		StringBuilder analog = new StringBuilder(start);
+		EditTree.Cursor[] cursors = new EditTree.Cursor[4];
+		int[] carets = new int[cursors.length];
+		for (int i = 0; i < cursors.length; i++) {
+			carets[i] = rand.nextInt(analog.length() + 1);
+			cursors[i] = t.cursor(carets[i]);
+		}
+		EditTree snapshot = t.snapshot();
+		String kept = analog.toString();
+		for (int i = 0; i < 20000; i++) {
+			int c = rand.nextInt(cursors.length);
+			EditTree.Cursor cursor = cursors[c];
+			int caret = carets[c];
+			int op = rand.nextInt(10);
+			int at = -1;
+			int removed = 0;
+			int added = 0;
+			if (op < 4) {
+				char ch = (char) ('a' + rand.nextInt(26));
+				cursor.insert(ch);
+				analog.insert(caret, ch);
+				at = caret;
+				added = 1;
+			} else if (op < 6 && caret > 0) {
+				assertEquals(analog.charAt(caret - 1), cursor.backspace());
+				analog.deleteCharAt(caret - 1);
+				at = caret - 1;
+				removed = 1;
+			} else if (op < 8 && caret < analog.length()) {
+				assertEquals(analog.charAt(caret), cursor.delete());
+				analog.deleteCharAt(caret);
+				at = caret;
+				removed = 1;
+			} else if (op < 9 && caret < analog.length()) {
+				assertEquals(analog.charAt(caret), cursor.next());
+				carets[c]++;
+			} else if (caret > 0) {
+				assertEquals(analog.charAt(caret - 1), cursor.previous());
+				carets[c]--;
+			}
+			if (at >= 0) {
+				for (int k = 0; k < carets.length; k++) {
+					if (carets[k] >= at + removed) {
+						carets[k] += added - removed;
+					} else if (carets[k] > at) {
+						carets[k] = at;
+					}
+				}
+			}
+			if (i % 1000 == 0) {
+				//edits after a snapshot must copy the cursors' paths
+				snapshot = t.snapshot();
+				kept = analog.toString();
+			}
+			for (int k = 0; k < carets.length; k++) {
+				assertEquals(carets[k], cursors[k].position());
+			}
+			if (carets[c] < analog.length()) {
+				assertEquals(analog.charAt(carets[c]), cursor.get());
+			}
+		}
+		assertEquals(analog.toString(), t.toString());
+		assertEquals(kept, snapshot.toString());
+		assertEquals(new EditTree(analog.toString()).hash(), t.hash());
+		assertTrue(t.balanceCodesAreCorrect());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+	}
+}
@@ -0,0 +1,80 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeHashTest {
+
+	private static long expectedHash(String s) {
+		long hash = 0;
+		for (int i = s.length() - 1; i >= 0; i--) {
+			hash = RollingHash.mod(RollingHash.mulMod(hash, RollingHash.BASE) + RollingHash.lift(s.charAt(i)));
+		}
+		return hash;
+	}
+
+	private static void assertHashes(String expected, EditTree t, Random rand) {
+		assertEquals(expectedHash(expected), t.hash());
+		for (int i = 0; i < 30; i++) {
+			int pos = rand.nextInt(expected.length() + 1);
+			int length = rand.nextInt(expected.length() - pos + 1);
+			assertEquals(expectedHash(expected.substring(pos, pos + length)), t.hash(pos, length));
+		}
+	}
+
+	@Test
+	public void test101MulModMatchesBigInteger() {
+		Random rand = new Random(1);
+		BigInteger mod = BigInteger.valueOf(RollingHash.MOD);
+		for (int i = 0; i < 10000; i++) {
+			long a = (rand.nextLong() >>> 3) % RollingHash.MOD;
+			long b = i == 0 ? RollingHash.MOD - 1 : (rand.nextLong() >>> 3) % RollingHash.MOD;
+			long expected = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(mod).longValue();
+			assertEquals(expected, RollingHash.mulMod(a, b));
+		}
+		assertEquals(RollingHash.mulMod(RollingHash.power(12345), RollingHash.power(1 << 23)), RollingHash.power(12345 + (1 << 23)));
+	}
+
+	@Test
+	public void test102HashIgnoresShape() {
+		Random rand = new Random(2);
+		for (int n = 0; n < 100; n++) {
+			String s = EditTreeTestSupport.randomText(rand, n, 4);
+			assertHashes(s, new EditTree(s), rand);
+			assertHashes(s, EditTreeTestSupport.reshaped(rand, s), rand);
+		}
+	}
+
+	@Test
+	public void test103HashFollowsEdits() {
+		Random rand = new Random(3);
+		EditTreeTestSupport.randomEdits(rand, new EditTree(), 3000, "abc", true, (expected, t) -> assertHashes(expected, t, rand));
+	}
+
+	@Test
+	public void test104RegionEquals() {
+		Random rand = new Random(4);
+		String s = EditTreeTestSupport.randomText(rand, 400, 2);
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		EditTree other = new EditTree(s.substring(100) + s);
+		for (int i = 0; i < 2000; i++) {
+			int length = rand.nextInt(12);
+			int pos = rand.nextInt(s.length() - length + 1);
+			int otherPos = rand.nextInt(other.size() - length + 1);
+			boolean expected = s.regionMatches(pos, other.toString(), otherPos, length);
+			assertEquals(expected, t.regionEquals(pos, other, otherPos, length));
+		}
+		assertTrue(t.regionEquals(100, other, 0, 300));
+		assertTrue(t.regionEquals(0, other, 300, 400));
+		assertFalse(t.regionEquals(1, other, 300, 400));
+	}
+}
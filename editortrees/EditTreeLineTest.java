@@ -0,0 +1,67 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeLineTest {
+
+	private static final String ALPHABET = "\nabc";
+
+	private static String randomLines(Random rand, int length) {
+		return EditTreeTestSupport.randomText(rand, length, ALPHABET);
+	}
+
+	private static void assertLines(String expected, EditTree t) {
+		String[] lines = expected.split("\n", -1);
+		assertEquals(expected, t.toString());
+		assertEquals(lines.length, t.lineCount());
+		int start = 0;
+		for (int line = 0; line < lines.length; line++) {
+			assertEquals(start, t.lineStart(line));
+			assertEquals(lines[line], t.getLine(line));
+			for (int pos = start; pos <= start + lines[line].length(); pos++) {
+				assertEquals(line, t.lineOf(pos));
+			}
+			start += lines[line].length() + 1;
+		}
+	}
+
+	@Test
+	public void test101BuiltTrees() throws IOException {
+		Random rand = new Random(1);
+		for (int n = 0; n < 100; n++) {
+			String s = randomLines(rand, n);
+			assertLines(s, new EditTree(s));
+			assertLines(s, EditTree.readFrom(new StringReader(s)));
+			assertLines(s, new EditTree(new EditTree(s)));
+		}
+		assertLines("", new EditTree());
+		assertLines("\n", new EditTree('\n'));
+	}
+
+	@Test
+	public void test102SingleCharEdits() {
+		Random rand = new Random(2);
+		EditTreeTestSupport.randomEdits(rand, new EditTree(), 3000, ALPHABET, false, EditTreeLineTest::assertLines);
+	}
+
+	@Test
+	public void test103BulkEditsAndSnapshots() {
+		Random rand = new Random(3);
+		EditTree t = new EditTree(randomLines(rand, 200));
+		EditTreeTestSupport.randomBulkEdits(rand, t, 300, ALPHABET, EditTreeLineTest::assertLines);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void test104LineOutOfBounds() {
+		new EditTree("a\nb").lineStart(2);
+	}
+}
@@ -0,0 +1,150 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeOffsetTest {
+
+	//the lone halves pair up with each other, and stay lone next to anything else
+	private static final String[] CODE_POINTS = { "a", "\n", "\u00E9", "\u20AC", "\uD83D\uDE00", "\uD834\uDD1E", "\uD800",
+			"\uDC00" };
+
+	private static String randomText(Random rand, int codePoints) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < codePoints; i++) {
+			sb.append(CODE_POINTS[rand.nextInt(CODE_POINTS.length)]);
+		}
+		return sb.toString();
+	}
+
+	private static int randomBoundary(Random rand, String s) {
+		return s.offsetByCodePoints(0, rand.nextInt(s.codePointCount(0, s.length()) + 1));
+	}
+
+	private static void assertOffsets(String expected, EditTree t) {
+		assertEquals(expected, t.toString());
+		assertEquals(expected.codePointCount(0, expected.length()), t.codePointCount());
+		assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, t.utf8Length());
+		for (int pos = 0; pos <= expected.length(); pos++) {
+			if (pos > 0 && pos < expected.length() && Character.isLowSurrogate(expected.charAt(pos))
+					&& Character.isHighSurrogate(expected.charAt(pos - 1))) {
+				//inside a pair rounds down to the pair's start
+				assertEquals(expected.codePointCount(0, pos - 1), t.charOffsetToCodePoint(pos));
+				assertEquals(t.charOffsetToUtf8(pos - 1), t.charOffsetToUtf8(pos));
+				continue;
+			}
+			int codePoint = expected.codePointCount(0, pos);
+			assertEquals(codePoint, t.charOffsetToCodePoint(pos));
+			assertEquals(pos, t.codePointToCharOffset(codePoint));
+			int bytes = expected.substring(0, pos).getBytes(StandardCharsets.UTF_8).length;
+			assertEquals(bytes, t.charOffsetToUtf8(pos));
+			assertEquals(pos, t.utf8ToCharOffset(bytes));
+		}
+	}
+
+	@Test
+	public void test101BuiltTrees() {
+		Random rand = new Random(1);
+		for (int n = 0; n < 60; n++) {
+			String s = randomText(rand, n);
+			EditTree t = new EditTree(s);
+			t.trackUnicodeOffsets();
+			assertOffsets(s, t);
+		}
+	}
+
+	@Test
+	public void test102RandomEdits() {
+		Random rand = new Random(2);
+		EditTree t = new EditTree();
+		t.trackUnicodeOffsets();
+		StringBuilder analog = new StringBuilder();
+		for (int i = 0; i < 400; i++) {
+			String s = analog.toString();
+			int pos = randomBoundary(rand, s);
+			if (rand.nextInt(3) == 0) {
+				int end = Math.max(pos, randomBoundary(rand, s));
+				t.delete(pos, end - pos);
+				analog.delete(pos, end);
+			} else {
+				String paste = randomText(rand, 1 + rand.nextInt(4));
+				if (paste.length() == 1) {
+					t.add(paste.charAt(0), pos);
+				} else {
+					t.add(paste, pos);
+				}
+				analog.insert(pos, paste);
+			}
+			if (i % 20 == 0) {
+				assertOffsets(analog.toString(), t);
+			}
+		}
+		assertOffsets(analog.toString(), t);
+	}
+
+	@Test
+	public void test103ByteInsideSequenceRoundsDown() {
+		EditTree t = new EditTree("a\u20AC\uD83D\uDE00b");
+		t.trackUnicodeOffsets();
+		assertEquals(1, t.utf8ToCharOffset(2));
+		assertEquals(1, t.utf8ToCharOffset(3));
+		assertEquals(2, t.utf8ToCharOffset(4));
+		assertEquals(2, t.utf8ToCharOffset(6));
+		assertEquals(2, t.utf8ToCharOffset(7));
+		assertEquals(4, t.utf8ToCharOffset(8));
+	}
+
+	@Test
+	public void test104CharInsidePairRoundsDown() {
+		EditTree t = new EditTree("a\uD83D\uDE00");
+		t.trackUnicodeOffsets();
+		assertEquals(1, t.charOffsetToCodePoint(2));
+		assertEquals(1, t.charOffsetToUtf8(2));
+		assertEquals(1, t.utf8ToCharOffset(3));
+		assertEquals(2, t.charOffsetToCodePoint(3));
+		assertEquals(5, t.charOffsetToUtf8(3));
+	}
+
+	@Test
+	public void test105TrackingFollowsCopiesAndJoins() {
+		EditTree t = new EditTree("\u00E9\uD83D\uDE00");
+		t.trackUnicodeOffsets();
+		EditTree tail = t.split(1);
+		assertEquals(4, tail.utf8Length());
+		EditTree other = new EditTree("\u20AC");
+		other.concatenate(t.snapshot());
+		t.concatenate(new EditTree("\u20AC"));
+		assertEquals(5, t.utf8Length());
+		assertEquals(2, new EditTree(t).codePointCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void test106UntrackedTreeRejectsQueries() {
+		new EditTree("abc").charOffsetToUtf8(1);
+	}
+
+	@Test
+	public void test107LoneSurrogatesCountLikeTheEncoder() {
+		EditTree t = new EditTree("a\uDC00b");
+		t.trackUnicodeOffsets();
+		assertOffsets("a\uDC00b", t);
+		assertEquals(3, t.utf8Length());
+		//a high surrogate in front completes the pair
+		t.add('\uD83D', 1);
+		assertOffsets("a\uD83D\uDC00b", t);
+		assertEquals(6, t.utf8Length());
+		t.add('x', 2);
+		assertOffsets("a\uD83Dx\uDC00b", t);
+		assertEquals(5, t.charOffsetToCodePoint(5));
+		t.delete(2);
+		t.delete(2);
+		assertOffsets("a\uD83Db", t);
+	}
+}
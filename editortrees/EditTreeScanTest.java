@@ -0,0 +1,306 @@
+package editortrees;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ConcurrentModificationException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeScanTest {
+
+	@Test
+	public void test101IteratorWalksInOrder() {
+		Random rand = new Random(4);
+		for (int n = 0; n < 200; n++) {
+			String s = EditTreeTestSupport.randomText(rand, n, 26);
+			EditTree t = EditTreeTestSupport.reshaped(rand, s);
+			for (int from = 0; from <= n; from += Math.max(1, n / 7)) {
+				StringBuilder sb = new StringBuilder();
+				PrimitiveIterator.OfInt it = t.iterator(from);
+				while (it.hasNext()) {
+					sb.append((char) it.nextInt());
+				}
+				assertEquals(s.substring(from), sb.toString());
+				CharIterator back = new CharIterator(t, from / 2, from, true);
+				sb.setLength(0);
+				while (back.hasNext()) {
+					sb.append(back.nextChar());
+				}
+				assertEquals(new StringBuilder(s.substring(from / 2, from)).reverse().toString(), sb.toString());
+			}
+		}
+	}
+
+	@Test
+	public void test102CharSequenceView() {
+		EditTree t = new EditTree("call 555-0199 or 555-0123 today");
+		assertEquals(t.size(), t.length());
+		assertEquals('5', t.charAt(5));
+		assertEquals("555-0199", t.subSequence(5, 13).toString());
+		Matcher m = Pattern.compile("\\d{3}-\\d{4}").matcher(t);
+		assertTrue(m.find());
+		assertEquals(5, m.start());
+		assertTrue(m.find());
+		assertEquals("555-0123", m.group());
+		assertFalse(m.find());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void test103IteratorFailsFastOnEdit() {
+		EditTree t = new EditTree("abcdef");
+		PrimitiveIterator.OfInt it = t.iterator();
+		it.nextInt();
+		t.add('x', 0);
+		it.nextInt();
+	}
+
+	@Test
+	public void test201ToStringAndAppendToAgree() throws IOException {
+		Random rand = new Random(12);
+		String s = EditTreeTestSupport.randomText(rand, 5000, 26);
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		assertEquals(s, t.toString());
+		StringBuilder sb = new StringBuilder(">");
+		t.appendTo(sb);
+		assertEquals(">" + s, sb.toString());
+		StringWriter out = new StringWriter();
+		t.appendTo(out);
+		assertEquals(s, out.toString());
+		new EditTree().appendTo(out);
+		assertEquals(s, out.toString());
+	}
+
+	@Test
+	public void test202DebugStringsUnchanged() {
+		EditTree t = new EditTree();
+		t.add('b');
+		t.add('a', 0);
+		t.add('c');
+		assertEquals("[b1, a0, c0]", t.toRankString());
+		assertEquals("[b1=, a0=, c0=]", t.toDebugString());
+		assertEquals("[]", new EditTree().toDebugString());
+	}
+
+	@Test
+	public void test203ParallelToCharArray() {
+		Random rand = new Random(13);
+		String s = EditTreeTestSupport.randomText(rand, 3000, 26);
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		for (int cutoff : new int[] { 1, 2, 17, 3000 }) {
+			assertEquals(s, new String(t.toCharArray(cutoff)));
+		}
+		String large = EditTreeTestSupport.randomText(rand, 1 << 18, 26);
+		assertEquals(large, new EditTree(large).toString());
+		assertEquals(0, new EditTree().toCharArray(1).length);
+	}
+
+	private static void collect(Spliterator.OfInt split, StringBuilder sb) {
+		long expected = split.estimateSize();
+		Spliterator.OfInt prefix = split.trySplit();
+		if (prefix == null) {
+			split.forEachRemaining((int ch) -> sb.append((char) ch));
+			return;
+		}
+		assertEquals(expected, prefix.estimateSize() + split.estimateSize());
+		collect(prefix, sb);
+		collect(split, sb);
+	}
+
+	@Test
+	public void test204RangeExtraction() throws IOException {
+		Random rand = new Random(14);
+		String s = EditTreeTestSupport.randomText(rand, 2000, 26);
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		for (int i = 0; i < 200; i++) {
+			int pos = rand.nextInt(s.length() + 1);
+			int length = rand.nextInt(s.length() - pos + 1);
+			String expected = s.substring(pos, pos + length);
+			char[] dst = new char[length + 3];
+			t.getChars(pos, length, dst, 3);
+			assertEquals(expected, new String(dst, 3, length));
+			StringBuilder sb = new StringBuilder("x");
+			t.appendTo(sb, pos, length);
+			assertEquals("x" + expected, sb.toString());
+			StringWriter writer = new StringWriter();
+			t.appendTo(writer, pos, length);
+			assertEquals(expected, writer.toString());
+			CharBuffer buffer = CharBuffer.allocate(length);
+			t.appendTo(buffer, pos, length);
+			buffer.flip();
+			assertEquals(expected, buffer.toString());
+		}
+		try {
+			t.getChars(1990, 20, new char[20], 0);
+			assertTrue(false);
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+		try {
+			t.getChars(0, 20, new char[20], 1);
+			assertTrue(false);
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void test205WriteToEncodesInOneTraversal() throws IOException {
+		Random rand = new Random(15);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 30000; i++) {
+			int kind = rand.nextInt(10);
+			if (kind == 0) {
+				text.append("\ud83d\ude00");
+			} else if (kind == 1) {
+				text.append('\u00e9');
+			} else {
+				text.append((char) ('a' + rand.nextInt(26)));
+			}
+		}
+		//pairs straddling the 8192-char fill boundary
+		text.setCharAt(8191, '\ud83d');
+		text.setCharAt(8192, '\ude00');
+		//a lone high surrogate right before a pair straddling the next boundary
+		text.setCharAt(2 * 8192 - 1, '\ud83d');
+		text.setCharAt(2 * 8192, '\ud83d');
+		text.setCharAt(2 * 8192 + 1, '\ude00');
+		//lone surrogates are replaced, as String.getBytes does
+		text.append("x\ud800y\udc00");
+		String s = text.toString();
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		for (Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16,
+				StandardCharsets.ISO_8859_1 }) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			t.writeTo(Channels.newChannel(out), charset);
+			assertArrayEquals(s.getBytes(charset), out.toByteArray());
+			EditTreeTestSupport.RecordingChannel channel = new EditTreeTestSupport.RecordingChannel();
+			t.writeTo(channel, charset);
+			assertArrayEquals(s.getBytes(charset), channel.bytes.toByteArray());
+		}
+		ByteArrayOutputStream empty = new ByteArrayOutputStream();
+		new EditTree().writeTo(Channels.newChannel(empty), StandardCharsets.UTF_16);
+		assertArrayEquals("".getBytes(StandardCharsets.UTF_16), empty.toByteArray());
+		StringWriter writer = new StringWriter();
+		t.writeTo(writer);
+		assertEquals(s, writer.toString());
+	}
+
+	@Test
+	public void test206ConcurrentReadersAgree() throws InterruptedException {
+		Random rand = new Random(16);
+		String s = EditTreeTestSupport.randomText(rand, 20000, 26);
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		AtomicInteger mismatches = new AtomicInteger();
+		Thread[] readers = new Thread[4];
+		for (int r = 0; r < readers.length; r++) {
+			readers[r] = new Thread(() -> {
+				try {
+					for (int i = 0; i < 30; i++) {
+						StringWriter writer = new StringWriter();
+						t.writeTo(writer);
+						//a plain Appendable takes the CharSequence path
+						StringBuilder sb = new StringBuilder();
+						t.appendTo(new Appendable() {
+							@Override
+							public Appendable append(CharSequence csq) {
+								sb.append(csq);
+								return this;
+							}
+
+							@Override
+							public Appendable append(CharSequence csq, int start, int end) {
+								sb.append(csq, start, end);
+								return this;
+							}
+
+							@Override
+							public Appendable append(char c) {
+								sb.append(c);
+								return this;
+							}
+						}, 0, s.length());
+						if (!s.equals(writer.toString()) || !s.equals(sb.toString())) {
+							mismatches.incrementAndGet();
+						}
+					}
+				} catch (IOException e) {
+					mismatches.incrementAndGet();
+				}
+			});
+			readers[r].start();
+		}
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertEquals(0, mismatches.get());
+	}
+
+	@Test
+	public void test301CharsStreamsInOrder() {
+		Random rand = new Random(31);
+		String s = EditTreeTestSupport.randomText(rand, 2000, 5);
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		assertEquals(s, t.chars().collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString());
+		assertEquals(s.chars().filter(ch -> ch == 'c').count(), t.chars().parallel().filter(ch -> ch == 'c').count());
+		assertEquals(s.chars().sum(), t.chars().parallel().sum());
+		assertEquals(s.length(), t.chars().parallel().count());
+	}
+
+	@Test
+	public void test302SplitsAtSubtreeBoundaries() {
+		Random rand = new Random(32);
+		for (int n = 0; n < 120; n++) {
+			String s = EditTreeTestSupport.randomText(rand, n, 26);
+			EditTree t = EditTreeTestSupport.reshaped(rand, s);
+			StringBuilder sb = new StringBuilder();
+			Spliterator.OfInt split = t.spliterator();
+			assertTrue(split.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+			assertFalse(split.hasCharacteristics(Spliterator.IMMUTABLE));
+			collect(split, sb);
+			assertEquals(s, sb.toString());
+		}
+		Spliterator.OfInt whole = new EditTree(EditTreeTestSupport.randomText(rand, 1000, 26)).spliterator();
+		Spliterator.OfInt half = whole.trySplit();
+		assertEquals(500, half.estimateSize());
+		assertEquals(500, whole.estimateSize());
+	}
+
+	@Test
+	public void test303StreamFailsFastOnEdit() {
+		EditTree t = new EditTree("abc");
+		IntStream chars = t.chars();
+		t.add('x', 0);
+		try {
+			chars.sum();
+			assertTrue(false);
+		} catch (ConcurrentModificationException e) {
+			//expected
+		}
+		//a snapshot streams the old text while the tree keeps changing
+		EditTree copy = t.snapshot();
+		IntStream old = copy.chars();
+		t.delete(3);
+		assertEquals("xabc", old.collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString());
+		assertEquals("xab", t.toString());
+	}
+}
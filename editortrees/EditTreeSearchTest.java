@@ -0,0 +1,111 @@
+package editortrees;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeSearchTest {
+
+	private static int[] occurrences(String s, String pattern, int from) {
+		int[] all = new int[s.length() + 1];
+		int count = 0;
+		for (int i = s.indexOf(pattern, from); i >= 0; i = s.indexOf(pattern, i + 1)) {
+			all[count++] = i;
+		}
+		return Arrays.copyOf(all, count);
+	}
+
+	@Test
+	public void test101IndexOfMatchesString() {
+		Random rand = new Random(1);
+		for (int n = 0; n < 80; n++) {
+			String s = EditTreeTestSupport.randomText(rand, n, 3);
+			EditTree t = EditTreeTestSupport.reshaped(rand, s);
+			for (int k = 0; k < 10; k++) {
+				String pattern = EditTreeTestSupport.randomText(rand, rand.nextInt(6), 3);
+				for (int from = -1; from <= n + 1; from++) {
+					assertEquals(s.indexOf(pattern, from), t.indexOf(pattern, from));
+					assertEquals(s.lastIndexOf(pattern, from), t.lastIndexOf(pattern, from));
+				}
+				assertEquals(s.indexOf(pattern), t.indexOf(pattern));
+				assertEquals(s.lastIndexOf(pattern), t.lastIndexOf(pattern));
+			}
+		}
+	}
+
+	@Test
+	public void test102FindAllReportsOverlaps() {
+		Random rand = new Random(2);
+		String s = EditTreeTestSupport.randomText(rand, 5000, 2);
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		for (String pattern : new String[] { "a", "ab", "aaa", "abab", "bbbbb" }) {
+			int[] expected = occurrences(s, pattern, 17);
+			int[] positions = new int[s.length()];
+			int count = t.findAll(pattern, 17, positions);
+			assertArrayEquals(expected, Arrays.copyOf(positions, count));
+		}
+		assertEquals(3, new EditTree("aaaa").findAll("aa", new int[8]));
+	}
+
+	@Test
+	public void test103FindAllStopsWhenBufferIsFull() {
+		EditTree t = new EditTree("xoxoxoxoxo");
+		int[] positions = new int[3];
+		assertEquals(3, t.findAll("xo", positions));
+		assertArrayEquals(new int[] { 0, 2, 4 }, positions);
+		assertEquals(2, t.findAll("xo", positions[2] + 1, positions));
+		assertEquals(6, positions[0]);
+		assertEquals(8, positions[1]);
+	}
+
+	@Test
+	public void test104CharsSharingAShiftBucket() {
+		//'a' and U+0161 share the low byte
+		String s = "a\u0161a\u0161\u0161a";
+		EditTree t = new EditTree(s);
+		for (String pattern : new String[] { "\u0161a", "a\u0161\u0161", "\u0161\u0161a", "aa" }) {
+			assertEquals(s.indexOf(pattern), t.indexOf(pattern));
+			assertEquals(s.lastIndexOf(pattern), t.lastIndexOf(pattern));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test105FindAllRejectsEmptyPattern() {
+		new EditTree("abc").findAll("", new int[1]);
+	}
+
+	@Test
+	public void test201ParallelSearchMatchesSequential() {
+		Random rand = new Random(3);
+		String s = EditTreeTestSupport.randomText(rand, 20000, 2);
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		for (String pattern : new String[] { "a", "ab", "abba", "aaaaaaa", "babababab" }) {
+			int[] expected = occurrences(s, pattern, 0);
+			//tiny cutoffs force matches across every kind of split
+			for (int cutoff : new int[] { 1, 3, 64, 20000 }) {
+				SearchTask.Matches matches = t.search(pattern, true, cutoff);
+				assertArrayEquals(expected, Arrays.copyOf(matches.positions, matches.count));
+				assertEquals(expected.length, t.search(pattern, false, cutoff).count);
+			}
+			assertArrayEquals(expected, t.parallelFindAll(pattern));
+			assertEquals(expected.length, t.count(pattern));
+		}
+	}
+
+	@Test
+	public void test202ParallelSearchOnLargeTree() {
+		Random rand = new Random(4);
+		String s = EditTreeTestSupport.randomText(rand, 1 << 19, 4);
+		EditTree t = new EditTree(s);
+		assertArrayEquals(occurrences(s, "abcd", 0), t.parallelFindAll("abcd"));
+		assertEquals(occurrences(s, "dd", 0).length, t.count("dd"));
+		assertEquals(0, t.count("e"));
+	}
+}
@@ -0,0 +1,95 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeSnapshotTest {
+
+	@Test
+	public void test101SnapshotSharesNodes() {
+		EditTree t = new EditTree("abcdefg");
+		EditTree s = t.snapshot();
+		assertSame(t.root, s.root);
+		assertEquals("abcdefg", s.toString());
+		assertEquals(7, s.size());
+	}
+
+	@Test
+	public void test102EditsDoNotLeakBetweenVersions() {
+		EditTree t = new EditTree("abcdefg");
+		EditTree s = t.snapshot();
+		t.add('x', 3);
+		t.delete(0);
+		s.add('y');
+		assertEquals("bcxdefg", t.toString());
+		assertEquals("abcdefgy", s.toString());
+		assertTrue(t.ranksMatchLeftSubtreeSize() && s.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect() && s.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void test103EditCopiesOnlyOnePath() {
+		EditTree t = new EditTree();
+		for (int i = 0; i < 1023; i++) {
+			t.add((char) ('a' + i % 26));
+		}
+		EditTree s = t.snapshot();
+		t.add('!', 0);
+		//untouched right subtree stays shared
+		assertSame(s.root.right, t.root.right);
+		assertEquals('a', s.get(0));
+		assertEquals('!', t.get(0));
+	}
+
+	@Test
+	public void test104ManyVersionsStayIndependent() {
+		Random rand = new Random(23);
+		List<EditTree> versions = new ArrayList<EditTree>();
+		List<String> expected = new ArrayList<String>();
+		EditTreeTestSupport.randomEdits(rand, new EditTree(), 3000, "abcdefghijklmnopqrstuvwxyz", false, (text, t) -> {
+			assertEquals(text, t.toString());
+			versions.add(t.snapshot());
+			expected.add(text);
+		});
+		for (int i = 0; i < versions.size(); i++) {
+			assertEquals(expected.get(i), versions.get(i).toString());
+		}
+	}
+
+	@Test
+	public void test105ConcatenateLeavesSnapshotsAlone() {
+		String text = "0123456789abcdefghijklmnopqrstuvwxyz";
+		EditTree src = new EditTree(text);
+		EditTree snap = src.snapshot();
+		EditTree dst = new EditTree("AB");
+		dst.concatenate(src);
+		for (int i = 0; i < 30; i++) {
+			dst.add('!', dst.size() / 2);
+		}
+		assertEquals(text, snap.toString());
+		assertTrue(snap.ranksMatchLeftSubtreeSize());
+		assertEquals(text.length() + 32, dst.size());
+		//a split tail carries its parent's nodes, then gets snapshotted
+		EditTree t = new EditTree(text);
+		EditTree tail = t.split(10);
+		EditTree tailSnap = tail.snapshot();
+		t.concatenate(tail);
+		for (int i = 0; i < 30; i++) {
+			t.add('?', 10 + i % 20);
+			t.delete(t.size() - 1);
+		}
+		assertEquals(text.substring(10), tailSnap.toString());
+		assertTrue(tailSnap.ranksMatchLeftSubtreeSize());
+		assertTrue(tailSnap.balanceCodesAreCorrect());
+	}
+}
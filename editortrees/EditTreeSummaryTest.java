@@ -0,0 +1,124 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EditTreeSummaryTest {
+
+	private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+	private static final Summary<Integer> VOWELS = new Summary<Integer>() {
+		@Override
+		public Integer identity() {
+			return 0;
+		}
+
+		@Override
+		public Integer lift(char ch) {
+			return "aeiou".indexOf(ch) >= 0 ? 1 : 0;
+		}
+
+		@Override
+		public Integer combine(Integer left, Integer right) {
+			return left + right;
+		}
+	};
+
+	//order-sensitive, so a misplaced combine shows up
+	private static final Summary<String> TEXT = new Summary<String>() {
+		@Override
+		public String identity() {
+			return "";
+		}
+
+		@Override
+		public String lift(char ch) {
+			return String.valueOf(ch);
+		}
+
+		@Override
+		public String combine(String left, String right) {
+			return left + right;
+		}
+	};
+
+	private static int vowels(String s) {
+		int count = 0;
+		for (int i = 0; i < s.length(); i++) {
+			count += VOWELS.lift(s.charAt(i));
+		}
+		return count;
+	}
+
+	private static void assertSummaries(String expected, EditTree t, Random rand) {
+		assertEquals(expected, t.summarize(TEXT));
+		assertEquals(vowels(expected), (int) t.summarize(VOWELS));
+		for (int i = 0; i < 30; i++) {
+			int pos = rand.nextInt(expected.length() + 1);
+			int length = rand.nextInt(expected.length() - pos + 1);
+			String slice = expected.substring(pos, pos + length);
+			assertEquals(slice, t.summarize(TEXT, pos, length));
+			assertEquals(vowels(slice), (int) t.summarize(VOWELS, pos, length));
+		}
+	}
+
+	@Test
+	public void test101RegisterOnExistingText() {
+		Random rand = new Random(1);
+		String s = EditTreeTestSupport.randomText(rand, 500, 26);
+		EditTree t = EditTreeTestSupport.reshaped(rand, s);
+		t.register(VOWELS);
+		t.register(TEXT);
+		t.register(VOWELS);
+		assertSummaries(s, t, rand);
+		EditTree empty = new EditTree();
+		empty.register(TEXT);
+		assertEquals("", empty.summarize(TEXT));
+	}
+
+	@Test
+	public void test102SingleCharEdits() {
+		Random rand = new Random(2);
+		EditTree t = new EditTree();
+		t.register(TEXT);
+		t.register(VOWELS);
+		EditTreeTestSupport.randomEdits(rand, t, 3000, LETTERS, false, (expected, tree) -> assertSummaries(expected, tree, rand));
+	}
+
+	@Test
+	public void test103BulkEditsSnapshotsAndCopies() {
+		Random rand = new Random(3);
+		EditTree t = new EditTree(EditTreeTestSupport.randomText(rand, 300, 26));
+		t.register(VOWELS);
+		t.register(TEXT);
+		String expected = EditTreeTestSupport.randomBulkEdits(rand, t, 200, LETTERS,
+				(kept, tree) -> assertSummaries(kept, tree, rand));
+		assertSummaries(expected, new EditTree(t), rand);
+	}
+
+	@Test
+	public void test104ConcatenateAdoptsSummaries() {
+		Random rand = new Random(4);
+		EditTree t = new EditTree("hello ");
+		t.register(TEXT);
+		t.register(VOWELS);
+		EditTree other = new EditTree("wonderful world");
+		other.register(VOWELS);
+		t.concatenate(other);
+		assertSummaries("hello wonderful world", t, rand);
+		assertEquals(0, other.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test105UnregisteredSummary() {
+		EditTree t = new EditTree("abc");
+		t.register(TEXT);
+		t.summarize(VOWELS, 0, 1);
+	}
+}
@@ -0,0 +1,133 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Random;
+
+//random text, edit scripts and test doubles shared by the tree tests
+final class EditTreeTestSupport {
+
+	private EditTreeTestSupport() {
+	}
+
+	static String randomText(Random rand, int length, int alphabet) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append((char) ('a' + rand.nextInt(alphabet)));
+		}
+		return sb.toString();
+	}
+
+	static String randomText(Random rand, int length, String alphabet) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(rand.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	//single-char edits, with an occasional paste, checked every 100 ops and at the end
+	static String randomEdits(Random rand, EditTree t, int ops, String alphabet, boolean pastes, EditCheck check) {
+		StringBuilder analog = new StringBuilder(t.toString());
+		for (int i = 0; i < ops; i++) {
+			if (analog.length() > 0 && rand.nextInt(3) == 0) {
+				int pos = rand.nextInt(analog.length());
+				assertEquals(analog.charAt(pos), t.delete(pos));
+				analog.deleteCharAt(pos);
+			} else if (pastes && rand.nextInt(10) == 0) {
+				int pos = rand.nextInt(analog.length() + 1);
+				String paste = randomText(rand, rand.nextInt(10), alphabet);
+				t.add(paste, pos);
+				analog.insert(pos, paste);
+			} else {
+				int pos = rand.nextInt(analog.length() + 1);
+				char ch = alphabet.charAt(rand.nextInt(alphabet.length()));
+				t.add(ch, pos);
+				analog.insert(pos, ch);
+			}
+			if (i % 100 == 0) {
+				check.check(analog.toString(), t);
+			}
+		}
+		check.check(analog.toString(), t);
+		return analog.toString();
+	}
+
+	//pastes and range deletes, checking the tree, a snapshot taken before each edit and the removed span
+	static String randomBulkEdits(Random rand, EditTree t, int ops, String alphabet, EditCheck check) {
+		StringBuilder analog = new StringBuilder(t.toString());
+		for (int i = 0; i < ops; i++) {
+			EditTree before = t.snapshot();
+			String kept = analog.toString();
+			int pos = rand.nextInt(analog.length() + 1);
+			if (rand.nextBoolean()) {
+				String paste = randomText(rand, rand.nextInt(20), alphabet);
+				t.add(paste, pos);
+				analog.insert(pos, paste);
+			} else {
+				int length = rand.nextInt(analog.length() - pos + 1);
+				check.check(analog.substring(pos, pos + length), t.delete(pos, length));
+				analog.delete(pos, pos + length);
+			}
+			check.check(analog.toString(), t);
+			check.check(kept, before);
+		}
+		return analog.toString();
+	}
+
+	static EditTree reshaped(Random rand, String s) {
+		EditTree t = new EditTree(s);
+		for (int i = 0; i < s.length(); i++) {
+			int pos = rand.nextInt(s.length());
+			t.add(t.delete(pos), pos);
+		}
+		return t;
+	}
+
+	interface EditCheck {
+		void check(String expected, EditTree t);
+	}
+
+	//accepts at most a few bytes per call and counts gathering writes
+	static final class RecordingChannel implements GatheringByteChannel {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		int gathered;
+
+		@Override
+		public int write(ByteBuffer src) {
+			return (int) write(new ByteBuffer[] { src }, 0, 1);
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) {
+			if (length > 1) {
+				gathered++;
+			}
+			int count = 0;
+			for (int i = offset; i < offset + length && count < 5000; i++) {
+				while (srcs[i].hasRemaining() && count < 5000) {
+					bytes.write(srcs[i].get());
+					count++;
+				}
+			}
+			return count;
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs) {
+			return write(srcs, 0, srcs.length);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
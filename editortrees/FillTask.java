@@ -0,0 +1,36 @@
+package editortrees;
+
+import java.util.concurrent.RecursiveAction;
+
+final class FillTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Node node;
+	private final int size;
+	private final char[] chars;
+	private final int offset;
+	private final int cutoff;
+
+	FillTask(Node node, int size, char[] chars, int offset, int cutoff) {
+		this.node = node;
+		this.size = size;
+		this.chars = chars;
+		this.offset = offset;
+		this.cutoff = cutoff;
+	}
+
+	@Override
+	protected void compute() {
+		if (size <= cutoff) {
+			node.fill(0, size, chars, offset);
+			return;
+		}
+		//rank places each subtree in its own slice
+		FillTask right = new FillTask(node.right, size - node.rank - 1, chars, offset + node.rank + 1, cutoff);
+		right.fork();
+		chars[offset + node.rank] = node.data;
+		new FillTask(node.left, node.rank, chars, offset, cutoff).compute();
+		right.join();
+	}
+}
@@ -0,0 +1,83 @@
+package editortrees;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+final class Horspool {
+
+	private static final int BUCKETS = 256;
+
+	private final char[] pattern;
+	private final int[] shift = new int[BUCKETS];
+	private final char[] window;
+	private final PrimitiveIterator.OfInt chars;
+	private int head;
+	private int consumed;
+	private boolean primed;
+
+	Horspool(CharSequence pattern, boolean reverse, PrimitiveIterator.OfInt chars) {
+		int m = pattern.length();
+		this.pattern = new char[m];
+		for (int i = 0; i < m; i++) {
+			//stream order
+			this.pattern[i] = pattern.charAt(reverse ? m - 1 - i : i);
+		}
+		this.window = new char[m];
+		this.chars = chars;
+		Arrays.fill(shift, m);
+		for (int i = 0; i < m - 1; i++) {
+			//chars sharing a bucket keep the smallest, always safe, shift
+			shift[this.pattern[i] & (BUCKETS - 1)] = m - 1 - i;
+		}
+	}
+
+	int find() {
+		int m = pattern.length;
+		if (!primed) {
+			primed = true;
+			if (!advance(m)) {
+				return -1;
+			}
+		} else if (!advance(shiftForLast())) {
+			return -1;
+		}
+		while (!windowMatches()) {
+			if (!advance(shiftForLast())) {
+				return -1;
+			}
+		}
+		return consumed - m;
+	}
+
+	private int shiftForLast() {
+		int newest = head == 0 ? window.length - 1 : head - 1;
+		return shift[window[newest] & (BUCKETS - 1)];
+	}
+
+	private boolean windowMatches() {
+		int m = pattern.length;
+		for (int k = m - 1; k >= 0; k--) {
+			int index = head + k;
+			if (index >= m) {
+				index -= m;
+			}
+			if (window[index] != pattern[k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean advance(int count) {
+		for (int i = 0; i < count; i++) {
+			if (!chars.hasNext()) {
+				return false;
+			}
+			//ring-overwrites-oldest
+			window[head] = (char) chars.nextInt();
+			head = head + 1 == window.length ? 0 : head + 1;
+			consumed++;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,395 @@
+package editortrees;
+
+public abstract class IndexedEditTree {
+
+	static final int NIL = 0;
+	static final byte LEFT = -1;
+	static final byte SAME = 0;
+	static final byte RIGHT = 1;
+
+	int root;
+	private int size;
+	private int highWater;
+	private int freeList;
+	private boolean heightChanged;
+	private char deletedChar;
+
+	IndexedEditTree() {
+		clear();
+	}
+
+	void clear() {
+		this.root = NIL;
+		this.size = 0;
+		//slot-0-is-NIL
+		this.highWater = 1;
+		this.freeList = NIL;
+	}
+
+	void load(String s) {
+		this.root = build(s, 0, s.length());
+		this.size = s.length();
+	}
+
+	private int build(String s, int from, int to) {
+		if (from >= to) {
+			return NIL;
+		}
+		int count = to - from;
+		int mid = from + count / 2;
+		int node = allocate(s.charAt(mid));
+		setRank(node, count / 2);
+		setLeft(node, build(s, from, mid));
+		setRight(node, build(s, mid + 1, to));
+		if (Node.heightOf(count / 2) > Node.heightOf(count - count / 2 - 1)) {
+			setBalance(node, LEFT);
+		}
+		return node;
+	}
+
+	private int allocate(char ch) {
+		int node;
+		if (freeList != NIL) {
+			//reuse-free
+			node = freeList;
+			freeList = left(node);
+		} else {
+			if (highWater > capacity()) {
+				grow();
+			}
+			node = highWater++;
+		}
+		setData(node, ch);
+		setLeft(node, NIL);
+		setRight(node, NIL);
+		setRank(node, 0);
+		setBalance(node, SAME);
+		return node;
+	}
+
+	private void free(int node) {
+		setLeft(node, freeList);
+		freeList = node;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public abstract int capacity();
+
+	abstract void grow();
+
+	abstract char data(int node);
+
+	abstract void setData(int node, char ch);
+
+	abstract int left(int node);
+
+	abstract void setLeft(int node, int child);
+
+	abstract int right(int node);
+
+	abstract void setRight(int node, int child);
+
+	abstract int rank(int node);
+
+	abstract void setRank(int node, int rank);
+
+	abstract byte balance(int node);
+
+	abstract void setBalance(int node, byte code);
+
+	@Override
+	public String toString() {
+		char[] chars = new char[size];
+		fill(root, chars, 0);
+		return new String(chars);
+	}
+
+	private int fill(int node, char[] chars, int index) {
+		while (node != NIL) {
+			index = fill(left(node), chars, index);
+			chars[index++] = data(node);
+			node = right(node);
+		}
+		return index;
+	}
+
+	public void add(char ch) {
+		add(ch, size);
+	}
+
+	public void add(char ch, int pos) throws IndexOutOfBoundsException {
+		if (pos > this.size() || pos < 0) {
+			//add-bounds
+			throw new IndexOutOfBoundsException("The given position is greater than the size of the tree.");
+		}
+		root = insert(root, ch, pos);
+		this.size++;
+	}
+
+	public char get(int pos) throws IndexOutOfBoundsException {
+		if (pos >= size || pos < 0) {
+			throw new IndexOutOfBoundsException("Pos is out of bounds");
+		}
+		int node = root;
+		while (pos != rank(node)) {
+			if (pos < rank(node)) {
+				node = left(node);
+			} else {
+				pos -= rank(node) + 1;
+				node = right(node);
+			}
+		}
+		return data(node);
+	}
+
+	public String get(int pos, int length) throws IndexOutOfBoundsException {
+		if (pos + length > size || pos < 0 || length < 0) {
+			//slice-bounds
+			throw new IndexOutOfBoundsException("Index out of bounds for get method :(");
+		}
+		StringBuilder sb = new StringBuilder(length);
+		get(root, pos, pos + length - 1, sb);
+		return sb.toString();
+	}
+
+	private void get(int node, int leftPos, int rightPos, StringBuilder sb) {
+		if (node == NIL) {
+			return;
+		}
+		int r = rank(node);
+		if (leftPos < r) {
+			//pull-left
+			get(left(node), leftPos, Math.min(r - 1, rightPos), sb);
+		}
+		if (leftPos <= r && r <= rightPos) {
+			//pull-self
+			sb.append(data(node));
+		}
+		if (rightPos > r) {
+			//pull-right
+			get(right(node), Math.max(leftPos - r - 1, 0), rightPos - r - 1, sb);
+		}
+	}
+
+	public char delete(int pos) throws IndexOutOfBoundsException {
+		if (pos >= size || pos < 0) {
+			//delete-bounds
+			throw new IndexOutOfBoundsException();
+		}
+		root = delete(root, pos);
+		this.size--;
+		return deletedChar;
+	}
+
+	public int slowHeight() {
+		return slowHeight(root);
+	}
+
+	private int slowHeight(int node) {
+		if (node == NIL) {
+			return -1;
+		}
+		return Math.max(slowHeight(left(node)), slowHeight(right(node))) + 1;
+	}
+
+	public int slowSize() {
+		return slowSize(root);
+	}
+
+	private int slowSize(int node) {
+		if (node == NIL) {
+			return 0;
+		}
+		return slowSize(left(node)) + slowSize(right(node)) + 1;
+	}
+
+	public boolean ranksMatchLeftSubtreeSize() {
+		return ranksMatchLeftSubtreeSize(root);
+	}
+
+	private boolean ranksMatchLeftSubtreeSize(int node) {
+		if (node == NIL) {
+			return true;
+		}
+		return rank(node) == slowSize(left(node)) && ranksMatchLeftSubtreeSize(left(node))
+				&& ranksMatchLeftSubtreeSize(right(node));
+	}
+
+	public boolean balanceCodesAreCorrect() {
+		return heightIfCodesCorrect(root) != -2;
+	}
+
+	private int heightIfCodesCorrect(int node) {
+		if (node == NIL) {
+			return -1;
+		}
+		int leftHeight = heightIfCodesCorrect(left(node));
+		int rightHeight = heightIfCodesCorrect(right(node));
+		if (leftHeight == -2 || rightHeight == -2 || rightHeight - leftHeight != balance(node)) {
+			return -2;
+		}
+		return Math.max(leftHeight, rightHeight) + 1;
+	}
+
+	public String toDebugString() {
+		StringBuilder sb = new StringBuilder("[");
+		appendDebug(root, sb);
+		if (sb.length() > 1) {
+			//drop-tail
+			sb.setLength(sb.length() - 2);
+		}
+		return sb.append(']').toString();
+	}
+
+	private void appendDebug(int node, StringBuilder sb) {
+		if (node == NIL) {
+			return;
+		}
+		sb.append(data(node)).append(rank(node));
+		sb.append(balance(node) == LEFT ? "/" : balance(node) == RIGHT ? "\\" : "=").append(", ");
+		appendDebug(left(node), sb);
+		appendDebug(right(node), sb);
+	}
+
+	private int insert(int node, char ch, int pos) {
+		if (node == NIL) {
+			//leaf-insert
+			heightChanged = true;
+			return allocate(ch);
+		}
+		if (pos <= rank(node)) {
+			//rank++left
+			setRank(node, rank(node) + 1);
+			int child = insert(left(node), ch, pos);
+			setLeft(node, child);
+			return heightChanged ? grew(node, LEFT) : node;
+		}
+		int child = insert(right(node), ch, pos - rank(node) - 1);
+		setRight(node, child);
+		return heightChanged ? grew(node, RIGHT) : node;
+	}
+
+	private int grew(int node, byte side) {
+		if (balance(node) == SAME) {
+			setBalance(node, side);
+			return node;
+		}
+		if (balance(node) != side) {
+			setBalance(node, SAME);
+			heightChanged = false;
+			return node;
+		}
+		int newRoot = side == LEFT ? fixLeftHeavy(node) : fixRightHeavy(node);
+		heightChanged = false;
+		return newRoot;
+	}
+
+	private int delete(int node, int pos) {
+		if (pos < rank(node)) {
+			//step-left
+			setRank(node, rank(node) - 1);
+			int child = delete(left(node), pos);
+			setLeft(node, child);
+			return heightChanged ? shrank(node, LEFT) : node;
+		}
+		if (pos > rank(node)) {
+			//step-right
+			int child = delete(right(node), pos - rank(node) - 1);
+			setRight(node, child);
+			return heightChanged ? shrank(node, RIGHT) : node;
+		}
+		//hit-target
+		deletedChar = data(node);
+		if (left(node) == NIL || right(node) == NIL) {
+			int child = left(node) == NIL ? right(node) : left(node);
+			free(node);
+			heightChanged = true;
+			return child;
+		}
+		//swap-successor
+		int successor = right(node);
+		while (left(successor) != NIL) {
+			successor = left(successor);
+		}
+		char saved = deletedChar;
+		setData(node, data(successor));
+		int child = delete(right(node), 0);
+		setRight(node, child);
+		deletedChar = saved;
+		return heightChanged ? shrank(node, RIGHT) : node;
+	}
+
+	private int shrank(int node, byte side) {
+		if (balance(node) == side) {
+			setBalance(node, SAME);
+			return node;
+		}
+		if (balance(node) == SAME) {
+			setBalance(node, (byte) -side);
+			heightChanged = false;
+			return node;
+		}
+		return side == LEFT ? fixRightHeavy(node) : fixLeftHeavy(node);
+	}
+
+	private int rotateLeft(int node) {
+		int newParent = right(node);
+		setRight(node, left(newParent));
+		setLeft(newParent, node);
+		setRank(newParent, rank(newParent) + rank(node) + 1);
+		return newParent;
+	}
+
+	private int rotateRight(int node) {
+		int newParent = left(node);
+		setLeft(node, right(newParent));
+		setRight(newParent, node);
+		setRank(node, rank(node) - rank(newParent) - 1);
+		return newParent;
+	}
+
+	private int fixLeftHeavy(int node) {
+		int child = left(node);
+		if (balance(child) == RIGHT) {
+			//rot-LR
+			int grandchild = right(child);
+			setLeft(node, rotateLeft(child));
+			rotateRight(node);
+			setBalance(child, balance(grandchild) == RIGHT ? LEFT : SAME);
+			setBalance(node, balance(grandchild) == LEFT ? RIGHT : SAME);
+			setBalance(grandchild, SAME);
+			heightChanged = true;
+			return grandchild;
+		}
+		//rot-R
+		rotateRight(node);
+		heightChanged = balance(child) != SAME;
+		setBalance(node, heightChanged ? SAME : LEFT);
+		setBalance(child, heightChanged ? SAME : RIGHT);
+		return child;
+	}
+
+	private int fixRightHeavy(int node) {
+		int child = right(node);
+		if (balance(child) == LEFT) {
+			//rot-RL
+			int grandchild = left(child);
+			setRight(node, rotateRight(child));
+			rotateLeft(node);
+			setBalance(node, balance(grandchild) == RIGHT ? LEFT : SAME);
+			setBalance(child, balance(grandchild) == LEFT ? RIGHT : SAME);
+			setBalance(grandchild, SAME);
+			heightChanged = true;
+			return grandchild;
+		}
+		//rot-L
+		rotateLeft(node);
+		heightChanged = balance(child) != SAME;
+		setBalance(node, heightChanged ? SAME : RIGHT);
+		setBalance(child, heightChanged ? SAME : LEFT);
+		return child;
+	}
+}
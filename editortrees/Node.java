@@ -1,5 +1,6 @@
 package editortrees;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 public class Node {
@@ -25,7 +26,10 @@ public class Node {
 	Node left, right; 
 	int rank; 
 	Code balance;
-	DisplayableNodeWrapper displayableNodeWrapper;
+	Object owner;
+	int newlines;
+	long hash;
+	Object[] summaries;
 	private int totalRotationCount = 0;
 
 	static final Node NULL_NODE = new Node('\0', null, null);
@@ -41,7 +45,120 @@ public class Node {
 		
 		this(data, NULL_NODE, NULL_NODE);
 		this.balance = Code.SAME;
-		displayableNodeWrapper = new DisplayableNodeWrapper(this);
+		this.newlines = data == '\n' ? 1 : 0;
+		this.hash = RollingHash.lift(data);
+	}
+
+	void refresh(EditTree tree) {
+		//whole-subtree counts from children
+		this.newlines = left.newlines + right.newlines + (data == '\n' ? 1 : 0);
+		//char i of the subtree weighs BASE^i
+		long power = RollingHash.power(rank);
+		long own = RollingHash.mulMod(RollingHash.lift(data), power);
+		long rightPart = RollingHash.mulMod(right.hash, RollingHash.mulMod(power, RollingHash.BASE));
+		this.hash = RollingHash.mod(left.hash + own + rightPart);
+		Summary<?>[] registered = tree.summaries;
+		if (registered.length == 0) {
+			this.summaries = null;
+			return;
+		}
+		if (this.summaries == null || this.summaries.length != registered.length) {
+			this.summaries = new Object[registered.length];
+		}
+		for (int slot = 0; slot < registered.length; slot++) {
+			this.summaries[slot] = combined(registered[slot], slot);
+		}
+	}
+
+	private <S> S combined(Summary<S> summary, int slot) {
+		S own = summary.lift(this.data);
+		return summary.combine(summary.combine(left.summary(summary, slot), own), right.summary(summary, slot));
+	}
+
+	@SuppressWarnings("unchecked")
+	<S> S summary(Summary<S> summary, int slot) {
+		return this == NULL_NODE ? summary.identity() : (S) this.summaries[slot];
+	}
+
+	<S> S summarize(Summary<S> summary, int slot, int size, int from, int to) {
+		if (this == NULL_NODE || from >= to) {
+			return summary.identity();
+		}
+		if (from <= 0 && to >= size) {
+			//whole-subtree
+			return summary(summary, slot);
+		}
+		S result = summary.identity();
+		if (from < rank) {
+			result = left.summarize(summary, slot, rank, from, Math.min(to, rank));
+		}
+		if (from <= rank && rank < to) {
+			result = summary.combine(result, summary.lift(data));
+		}
+		if (to > rank + 1) {
+			S rightPart = right.summarize(summary, slot, size - rank - 1, Math.max(from - rank - 1, 0), to - rank - 1);
+			result = summary.combine(result, rightPart);
+		}
+		return result;
+	}
+
+	static Node build(CharSequence s, int from, int to, EditTree tree) {
+		if (from >= to) {
+			return NULL_NODE;
+		}
+		//middle-becomes-root
+		int count = to - from;
+		int mid = from + count / 2;
+		Node node = tree.newNode(s.charAt(mid));
+		node.rank = count / 2;
+		node.left = build(s, from, mid, tree);
+		node.right = build(s, mid + 1, to, tree);
+		node.balance = balanceFor(count / 2, count - count / 2 - 1);
+		node.refresh(tree);
+		return node;
+	}
+
+	static class VineBuilder {
+		private Node next;
+		private final EditTree tree;
+
+		VineBuilder(Node vine, EditTree tree) {
+			this.next = vine;
+			this.tree = tree;
+		}
+
+		Node build(int count) {
+			if (count == 0) {
+				return NULL_NODE;
+			}
+			//consume-vine-in-order
+			int leftCount = count / 2;
+			Node leftTree = build(leftCount);
+			Node node = next;
+			next = node.right;
+			node.left = leftTree;
+			node.rank = leftCount;
+			node.right = build(count - leftCount - 1);
+			node.balance = balanceFor(leftCount, count - leftCount - 1);
+			node.refresh(tree);
+			return node;
+		}
+	}
+
+	static Code balanceFor(int leftSize, int rightSize) {
+		int leftHeight = heightOf(leftSize);
+		int rightHeight = heightOf(rightSize);
+		if (leftHeight > rightHeight) {
+			return Code.LEFT;
+		} else if (leftHeight < rightHeight) {
+			return Code.RIGHT;
+		}
+		return Code.SAME;
+	}
+
+	static int heightOf(int nodes) {
+		//height of a tree built by build()
+		return 31 - Integer.numberOfLeadingZeros(nodes);
 	}
 
 	int slowHeight() {
@@ -74,92 +191,113 @@ public class Node {
 		return NULL_NODE;
 	}
 
-	public String generateString() {
-		if(this == NULL_NODE) {
-			return "";
-		}
-		else {
-			//inorder-cat
-			return this.left.generateString()+this.data+ this.right.generateString();
+	Node mutableFor(EditTree tree) {
+		if (this == NULL_NODE || this.owner == tree.owner) {
+			return this;
 		}
-		
+		//copy-on-write
+		return copyFor(tree);
 	}
-	
-	public NodeInfo insert(char ch, int pos) {
-		if(this == NULL_NODE) {
-			//leaf-insert
-			Node leaf = new Node(ch);
-			return new NodeInfo(leaf, true);
-			
+
+	Node copyFor(EditTree tree) {
+		Node copy = tree.newNode(this.data);
+		copy.left = this.left;
+		copy.right = this.right;
+		copy.rank = this.rank;
+		copy.balance = this.balance;
+		copy.newlines = this.newlines;
+		copy.hash = this.hash;
+		copy.summaries = this.summaries == null ? null : this.summaries.clone();
+		copy.totalRotationCount = this.totalRotationCount;
+		if (copy.countsUnicode() && this.countsUnicode()) {
+			((UnicodeNode) copy).copyCounts((UnicodeNode) this);
+		}
+		return copy;
+	}
+
+	boolean countsUnicode() {
+		return false;
+	}
+
+	public String generateString() {
+		StringBuilder sb = new StringBuilder();
+		appendTo(sb);
+		return sb.toString();
+	}
+
+	int fill(int from, int to, char[] chars, int index) {
+		Node node = this;
+		while (node != NULL_NODE && from < to) {
+			if (from < node.rank) {
+				//pull-left
+				index = node.left.fill(from, Math.min(to, node.rank), chars, index);
+			}
+			if (from <= node.rank && node.rank < to) {
+				//pull-self
+				chars[index++] = node.data;
+			}
+			//pull-right
+			from = Math.max(from - node.rank - 1, 0);
+			to = to - node.rank - 1;
+			node = node.right;
 		}
-		else {
-			NodeInfo insertInfo;
-			if (pos <= this.rank) {
-				//rank++left
-				this.rank ++;
-				insertInfo = left.insert(ch, pos);
-				left = insertInfo.myNode;
-				if(insertInfo.continueRebalance) { 
-					//rebalance-left
-					return this.rebalanceFromInsert(Code.LEFT); 
-				}
-				else {
-					return new NodeInfo(this, false);
-				}
+		return index;
+	}
+
+	void appendTo(int from, int to, Appendable out) throws IOException {
+		Node node = this;
+		while (node != NULL_NODE && from < to) {
+			if (from < node.rank) {
+				node.left.appendTo(from, Math.min(to, node.rank), out);
 			}
-			else {
-				insertInfo = right.insert(ch, pos - (this.rank+1));
-				right = insertInfo.myNode;
-				if(insertInfo.continueRebalance) {
-					//rebalance-right
-					return this.rebalanceFromInsert(Code.RIGHT); 
-				}
-				else {
-					return new NodeInfo(this, false);
-				}
+			if (from <= node.rank && node.rank < to) {
+				out.append(node.data);
 			}
-			
+			from = Math.max(from - node.rank - 1, 0);
+			to = to - node.rank - 1;
+			node = node.right;
+		}
+	}
+
+	void appendTo(StringBuilder sb) {
+		Node node = this;
+		while (node != NULL_NODE) {
+			node.left.appendTo(sb);
+			sb.append(node.data);
+			node = node.right;
 		}
-		
 	}
 	
-	private NodeInfo rebalanceFromInsert(Code tilt) {
+	Node rebalanceFromInsert(Code tilt, EditTree tree) {
 		Node returnNode = this;
-		boolean continueRebalance = true;
 		switch(this.balance) {
 		case LEFT:
 			if(tilt == Code.LEFT) {
 				//fix-LL
 				if(this.left.balance == Code.LEFT) { 	
-					returnNode = this.singleRotation(false);		
-					continueRebalance = false;
+					returnNode = this.singleRotation(false, tree);		
 				}
 				else {										
 					//fix-LR
-					returnNode = this.doubleRotation(false); 		
-					continueRebalance = false;
+					returnNode = this.doubleRotation(false, tree); 		
 				}
 			}
 			else {
 				this.balance = Code.SAME;
-				continueRebalance = false;
 			}
 			break;
 		case RIGHT:
 			if(tilt == Code.LEFT) {
 				this.balance = Code.SAME;
-				continueRebalance = false;
 			}
 			else {
 				//fix-R*
 				if(this.right.balance == Code.RIGHT) { 	
-					returnNode = singleRotation(true); 			
-					continueRebalance = false;
+					returnNode = singleRotation(true, tree); 			
 				}
 				else {										
 					//fix-RL
-					returnNode = doubleRotation(true); 			
-					continueRebalance = false;
+					returnNode = doubleRotation(true, tree); 			
 				}
 			}
 			break;
@@ -172,15 +310,26 @@ public class Node {
 			}
 			break;
 		}
-		return new NodeInfo(returnNode, continueRebalance);
+		return returnNode;
 	}
 	
 	public String toRankString() {
-		if(this == NULL_NODE) {
-			return "";
-		}
-		else {
-			return "" + this.data + this.rank + ", " + left.toRankString() + right.toRankString();
+		StringBuilder sb = new StringBuilder();
+		appendRanks(sb, false);
+		return sb.toString();
+	}
+
+	void appendRanks(StringBuilder sb, boolean withBalance) {
+		Node node = this;
+		while (node != NULL_NODE) {
+			//preorder
+			sb.append(node.data).append(node.rank);
+			if (withBalance) {
+				sb.append(node.balance.toString());
+			}
+			sb.append(", ");
+			node.left.appendRanks(sb, withBalance);
+			node = node.right;
 		}
 	}
 
@@ -208,46 +357,54 @@ public class Node {
 	    }
 	}
 	
-	private Node singleRotation(boolean leftOrRight) { 
+	private Node singleRotation(boolean leftOrRight, EditTree tree) { 
 		this.totalRotationCount++;
 		Node newParent;
 		if(leftOrRight) { 	
 			//rot-L
-			newParent = this.right;
+			newParent = this.right.mutableFor(tree);
 			this.right = newParent.left;
 			newParent.left = this;
 			newParent.rank = newParent.rank + newParent.left.rank + 1;
 		}
 		else {				
 			//rot-R
-			newParent = this.left;
+			newParent = this.left.mutableFor(tree);
 			this.left = newParent.right;
 			newParent.right = this;
 			this.rank = this.rank - newParent.rank - 1;
 		}
+		this.refresh(tree);
+		newParent.refresh(tree);
+		if(newParent.balance == Code.SAME) {
+			//delete-only: height kept
+			this.balance = leftOrRight ? Code.RIGHT : Code.LEFT;
+			newParent.balance = leftOrRight ? Code.LEFT : Code.RIGHT;
+			return newParent;
+		}
 		newParent.balance = Code.SAME;
 		this.balance = Code.SAME;
 		return newParent;
 	}
 	
-	private Node doubleRotation(boolean leftOrRight) { 
+	private Node doubleRotation(boolean leftOrRight, EditTree tree) { 
 		this.totalRotationCount = this.totalRotationCount + 2;
 		Node newParent;
 		Node newLeft;
 		Node newRight;
 		if(leftOrRight) { 	
 			//rot-RL
-			newParent = this.right.left;
-			newRight = this.right;
+			newRight = this.right.mutableFor(tree);
+			newParent = newRight.left.mutableFor(tree);
 			newLeft = this;
 			newRight.rank = newRight.rank - newParent.rank - 1;
 			newParent.rank = newParent.rank + newLeft.rank + 1;
 		}
 		else {				
 			//rot-LR
-			newParent = this.left.right;
+			newLeft = this.left.mutableFor(tree);
+			newParent = newLeft.right.mutableFor(tree);
 			newRight = this;
-			newLeft = this.left;
 			newRight.rank = newRight.rank - newLeft.rank - newParent.rank - 2;
 			newParent.rank = newParent.rank + newLeft.rank + 1;
 		}
@@ -255,6 +412,9 @@ public class Node {
 		newLeft.right = newParent.left;
 		newParent.right = newRight;
 		newParent.left = newLeft;
+		newLeft.refresh(tree);
+		newRight.refresh(tree);
+		newParent.refresh(tree);
 		switch(newParent.balance) {
 		case LEFT:
 			newLeft.balance = Code.SAME;
@@ -277,12 +437,9 @@ public class Node {
 	}
 	
 	public String toDebugString() {
-		if(this == NULL_NODE) {
-			return "";
-		}
-		else {
-			return "" + this.data + this.rank + this.balance.toString() + ", " + left.toDebugString() + right.toDebugString();
-		}
+		StringBuilder sb = new StringBuilder();
+		appendRanks(sb, true);
+		return sb.toString();
 	}
 	
 	public int getTotalRotationCount() {
@@ -325,19 +482,17 @@ public class Node {
 		}
 	}
 	
-	public class NodeInfo {
+	public static class NodeInfo {
 		Node myNode;
-		Code rebalanceUpward;
-		Node deletedNode;
 		boolean continueRebalance;
+		int height;
 		NodeInfo(Node myNode, boolean continueRebalance){
 			this.myNode = myNode;
 			this.continueRebalance = continueRebalance;
 		}
-		public NodeInfo(Node myNode, boolean continueRebalance, Node deletedNode) {
+		NodeInfo(Node myNode, int height) {
 			this.myNode = myNode;
-			this.continueRebalance = continueRebalance;
-			this.deletedNode = deletedNode;
+			this.height = height;
 		}
 	}
 	
@@ -366,133 +521,239 @@ public class Node {
 		}
 	}
 
-	public void get(int leftPos, int rightPos, StringBuilder sb) {
-		if(this == NULL_NODE) {
-			return;
+	boolean shrinksFromDelete(boolean leftShrank) {
+		Code heavy = leftShrank ? Code.RIGHT : Code.LEFT;
+		if (this.balance == Code.SAME) {
+			return false;
 		}
-		if(leftPos<rank) { 
-			//pull-left
-			left.get(leftPos, Math.min(rank-1,rightPos), sb);
+		if (this.balance != heavy) {
+			return true;
 		}
-		if(leftPos<=rank && rank<= rightPos) { 
-			//pull-self
-			sb.append(this.data);
-		}
-		if(rightPos > rank) {
-			//pull-right
-			right.get(Math.max(leftPos-rank-1, 0), rightPos-rank-1, sb);
-		}
-		return;
+		//rotation keeps height only over an even sibling
+		Node sibling = leftShrank ? this.right : this.left;
+		return sibling.balance != Code.SAME;
 	}
 
-	public NodeInfo delete(int pos) {
-		if (pos == this.rank) {		
-			//hit-target
-			if(!this.hasLeft() && !this.hasRight()) { 
-				return new NodeInfo(NULL_NODE, true, this);
-			}
-			else if(this.hasLeft() && !this.hasRight()){ 
-				//only-left
-				return new NodeInfo(this.left, true, this);
-			}
-			else if(!this.hasLeft() && this.hasRight()){ 
-				//only-right
-				return new NodeInfo(this.right, true, this);
-			}
-			else{ 
-				//swap-successor
-				NodeInfo deleteInfo = this.right.delete(0);
-				this.right = deleteInfo.myNode;
-				Node successor = deleteInfo.deletedNode;
-				char deleteData = this.data; 		
-				this.data = successor.data; 		
-				if (deleteInfo.continueRebalance) {
-					NodeInfo rebalanceInfo = this.leftRebalanceFromDelete();
-					return new NodeInfo(rebalanceInfo.myNode, rebalanceInfo.continueRebalance, new Node(deleteData));
-				}
-				else {
-					return new NodeInfo(this, false, new Node(deleteData));
-				}
-			}
-	    } 
-		else if (pos < this.rank) {	
-			//step-left
-			this.rank--;
-	    	NodeInfo deleteInfo = left.delete(pos); 
-	    	this.left = deleteInfo.myNode;			
-	    	if(deleteInfo.continueRebalance) {
-	    		NodeInfo rebalanceInfo = this.rightRebalanceFromDelete();
-	    		return new NodeInfo(rebalanceInfo.myNode, rebalanceInfo.continueRebalance, deleteInfo.deletedNode);
-	    	}
-	    	else {
-	    		return new NodeInfo(this, false, deleteInfo.deletedNode);
-	    	}
-	          
-	    } 
-	    else {					
-	    	//step-right
-	    	NodeInfo deleteInfo = right.delete(pos - (this.rank + 1)); 
-	    	this.right = deleteInfo.myNode;			
-	    	if(deleteInfo.continueRebalance) {
-	    		NodeInfo rebalanceInfo = this.leftRebalanceFromDelete();
-	    		return new NodeInfo(rebalanceInfo.myNode, rebalanceInfo.continueRebalance, deleteInfo.deletedNode);
-	    	}
-	    	else{
-	    		return new NodeInfo(this, false, deleteInfo.deletedNode);
-	    	}
-	    }
-	}
-	
-	private NodeInfo rightRebalanceFromDelete() {
-		NodeInfo rebalanceInfo = new NodeInfo(this, true);
+	Node rightRebalanceFromDelete(EditTree tree) {
 		switch(this.balance) {
 		case LEFT:
 		//balance=
 			this.balance = Code.SAME;
-			break;
+			return this;
 		case RIGHT:
 		//heavy-right
 			if(this.right.balance == Code.LEFT) { 
-				return new NodeInfo(this.doubleRotation(true), true);
+				return this.doubleRotation(true, tree);
 			}
-			else {								
 			//rot-right
-				return new NodeInfo(this.singleRotation(true), true);
-			}
-		case SAME:
+			return this.singleRotation(true, tree);
+		default:
 		//tilt-right
 			this.balance = Code.RIGHT;
-			rebalanceInfo.continueRebalance = false; 
-			break;
-		default:
-			break;
+			return this;
 		}
-		return rebalanceInfo;
 	}
-	private NodeInfo leftRebalanceFromDelete() {
-		NodeInfo rebalanceInfo = new NodeInfo(this, true);
+
+	Node leftRebalanceFromDelete(EditTree tree) {
 		switch(this.balance) {
 		case LEFT:
 		//heavy-left
 			if(this.left.balance == Code.RIGHT) { 
-				return new NodeInfo(this.doubleRotation(false), true);
+				return this.doubleRotation(false, tree);
 			}
-			else {								
 			//rot-left
-				return new NodeInfo(this.singleRotation(false), true);
-			}
+			return this.singleRotation(false, tree);
 		case RIGHT:
 		//balance=
 			this.balance = Code.SAME;
-			break;
-		case SAME:
+			return this;
+		default:
 		//tilt-left
 			this.balance = Code.LEFT;
-			rebalanceInfo.continueRebalance = false;
+			return this;
+		}
+	}
+
+	static class SplitInfo {
+		Node left, right;
+		int leftHeight, rightHeight;
+	}
+
+	static NodeInfo join(Node left, int leftHeight, int leftSize, Node mid, Node right, int rightHeight, EditTree tree) {
+		if (leftHeight > rightHeight + 1) {
+			//descend-left-spine
+			NodeInfo joinInfo = joinRight(left, leftHeight, leftSize, mid, right, rightHeight, tree);
+			return new NodeInfo(joinInfo.myNode, joinInfo.continueRebalance ? leftHeight + 1 : leftHeight);
+		}
+		if (rightHeight > leftHeight + 1) {
+			//descend-right-spine
+			NodeInfo joinInfo = joinLeft(left, leftHeight, leftSize, mid, right, rightHeight, tree);
+			return new NodeInfo(joinInfo.myNode, joinInfo.continueRebalance ? rightHeight + 1 : rightHeight);
+		}
+		return new NodeInfo(link(left, leftHeight, leftSize, mid, right, rightHeight, tree), Math.max(leftHeight, rightHeight) + 1);
+	}
+
+	private static Node link(Node left, int leftHeight, int leftSize, Node mid, Node right, int rightHeight, EditTree tree) {
+		Node node = mid.mutableFor(tree);
+		node.left = left;
+		node.right = right;
+		node.rank = leftSize;
+		if (leftHeight > rightHeight) {
+			node.balance = Code.LEFT;
+		} else if (leftHeight < rightHeight) {
+			node.balance = Code.RIGHT;
+		} else {
+			node.balance = Code.SAME;
+		}
+		node.refresh(tree);
+		return node;
+	}
+
+	private static NodeInfo joinRight(Node node, int height, int size, Node mid, Node right, int rightHeight, EditTree tree) {
+		if (height <= rightHeight + 1) {
+			//attach-here
+			return new NodeInfo(link(node, height, size, mid, right, rightHeight, tree), true);
+		}
+		node = node.mutableFor(tree);
+		int childHeight = node.balance == Code.LEFT ? height - 2 : height - 1;
+		NodeInfo joinInfo = joinRight(node.right, childHeight, size - node.rank - 1, mid, right, rightHeight, tree);
+		node.right = joinInfo.myNode;
+		node.refresh(tree);
+		if (!joinInfo.continueRebalance) {
+			return new NodeInfo(node, false);
+		}
+		switch (node.balance) {
+		case LEFT:
+			node.balance = Code.SAME;
+			return new NodeInfo(node, false);
+		case SAME:
+			node.balance = Code.RIGHT;
+			return new NodeInfo(node, true);
 		default:
-			break;
+			if (node.right.balance == Code.LEFT) {
+				return new NodeInfo(node.doubleRotation(true, tree), false);
+			}
+			boolean heightKept = node.right.balance == Code.SAME;
+			return new NodeInfo(node.singleRotation(true, tree), heightKept);
+		}
+	}
+
+	private static NodeInfo joinLeft(Node left, int leftHeight, int leftSize, Node mid, Node node, int height, EditTree tree) {
+		if (height <= leftHeight + 1) {
+			//attach-here
+			return new NodeInfo(link(left, leftHeight, leftSize, mid, node, height, tree), true);
+		}
+		node = node.mutableFor(tree);
+		//whole-left-tree-joins-below
+		node.rank += leftSize + 1;
+		int childHeight = node.balance == Code.RIGHT ? height - 2 : height - 1;
+		NodeInfo joinInfo = joinLeft(left, leftHeight, leftSize, mid, node.left, childHeight, tree);
+		node.left = joinInfo.myNode;
+		node.refresh(tree);
+		if (!joinInfo.continueRebalance) {
+			return new NodeInfo(node, false);
+		}
+		switch (node.balance) {
+		case RIGHT:
+			node.balance = Code.SAME;
+			return new NodeInfo(node, false);
+		case SAME:
+			node.balance = Code.LEFT;
+			return new NodeInfo(node, true);
+		default:
+			if (node.left.balance == Code.RIGHT) {
+				return new NodeInfo(node.doubleRotation(false, tree), false);
+			}
+			boolean heightKept = node.left.balance == Code.SAME;
+			return new NodeInfo(node.singleRotation(false, tree), heightKept);
+		}
+	}
+
+	static SplitInfo split(Node node, int height, int size, int pos, EditTree tree) {
+		if (node == NULL_NODE) {
+			SplitInfo parts = new SplitInfo();
+			parts.left = NULL_NODE;
+			parts.right = NULL_NODE;
+			parts.leftHeight = -1;
+			parts.rightHeight = -1;
+			return parts;
+		}
+		int leftHeight = node.balance == Code.RIGHT ? height - 2 : height - 1;
+		int rightHeight = node.balance == Code.LEFT ? height - 2 : height - 1;
+		int rightSize = size - node.rank - 1;
+		if (pos <= node.rank) {
+			//cut-left
+			SplitInfo parts = split(node.left, leftHeight, node.rank, pos, tree);
+			NodeInfo joined = join(parts.right, parts.rightHeight, node.rank - pos, node, node.right, rightHeight, tree);
+			parts.right = joined.myNode;
+			parts.rightHeight = joined.height;
+			return parts;
+		} else {
+			//cut-right
+			SplitInfo parts = split(node.right, rightHeight, rightSize, pos - node.rank - 1, tree);
+			NodeInfo joined = join(node.left, leftHeight, node.rank, node, parts.left, parts.leftHeight, tree);
+			parts.left = joined.myNode;
+			parts.leftHeight = joined.height;
+			return parts;
+		}
+	}
+
+	long rangeHash(int size, int from, int to) {
+		if (this == NULL_NODE || from >= to) {
+			return 0;
+		}
+		if (from <= 0 && to >= size) {
+			return this.hash;
+		}
+		long result = 0;
+		int length = 0;
+		if (from < rank) {
+			int leftTo = Math.min(to, rank);
+			result = left.rangeHash(rank, from, leftTo);
+			length = leftTo - from;
+		}
+		if (from <= rank && rank < to) {
+			result = RollingHash.append(result, length++, RollingHash.lift(data));
+		}
+		if (to > rank + 1) {
+			long rightPart = right.rangeHash(size - rank - 1, Math.max(from - rank - 1, 0), to - rank - 1);
+			result = RollingHash.append(result, length, rightPart);
+		}
+		return result;
+	}
+
+	int newlinesBefore(int pos) {
+		int count = 0;
+		Node node = this;
+		while (node != NULL_NODE) {
+			if (pos <= node.rank) {
+				node = node.left;
+			} else {
+				//whole-left-and-self
+				count += node.left.newlines + (node.data == '\n' ? 1 : 0);
+				pos -= node.rank + 1;
+				node = node.right;
+			}
+		}
+		return count;
+	}
+
+	int newlinePosition(int nth) {
+		//nth counts from one
+		int offset = 0;
+		Node node = this;
+		while (true) {
+			if (nth <= node.left.newlines) {
+				node = node.left;
+				continue;
+			}
+			nth -= node.left.newlines;
+			if (node.data == '\n' && --nth == 0) {
+				return offset + node.rank;
+			}
+			offset += node.rank + 1;
+			node = node.right;
 		}
-		return rebalanceInfo;
 	}
 
 	private Node recurseLeft() {
@@ -0,0 +1,155 @@
+package editortrees;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class OffHeapEditTree extends IndexedEditTree implements AutoCloseable {
+
+	//16-byte records: data, balance, pad, left, right, rank
+	private static final int RECORD_SHIFT = 4;
+	private static final int DATA_FIELD = 0;
+	private static final int BALANCE_FIELD = 2;
+	private static final int LEFT_FIELD = 4;
+	private static final int RIGHT_FIELD = 8;
+	private static final int RANK_FIELD = 12;
+
+	static final int PAGE_SHIFT = 16;
+	private static final int PAGE_RECORDS = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_RECORDS - 1;
+	private static final int PAGE_BYTES = PAGE_RECORDS << RECORD_SHIFT;
+
+	//mapped pages are not direct allocations, so -XX:MaxDirectMemorySize does not cap them
+	private final FileChannel channel;
+	private ByteBuffer[] pages;
+	private int pageCount;
+	private boolean closed;
+
+	public OffHeapEditTree() {
+		try {
+			Path file = Files.createTempFile("edittree", ".pages");
+			//unix unlinks it right away, so a crash leaves nothing behind
+			this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.pages = new ByteBuffer[4];
+		this.pageCount = 0;
+		grow();
+	}
+
+	public OffHeapEditTree(String s) {
+		this();
+		load(s);
+	}
+
+	@Override
+	public int capacity() {
+		return pageCount * PAGE_RECORDS - 1;
+	}
+
+	public long offHeapBytes() {
+		return (long) pageCount * PAGE_BYTES;
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		//drop-arena
+		Arrays.fill(this.pages, null);
+		this.pageCount = 0;
+		this.closed = true;
+		clear();
+		try {
+			//truncating frees the pages now; the unused mappings go at the next GC
+			this.channel.truncate(0);
+			this.channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	void grow() {
+		if (closed) {
+			throw new IllegalStateException("This tree has been closed.");
+		}
+		if (pageCount == pages.length) {
+			pages = Arrays.copyOf(pages, pageCount * 2);
+		}
+		try {
+			pages[pageCount] = channel.map(FileChannel.MapMode.READ_WRITE, (long) pageCount * PAGE_BYTES, PAGE_BYTES)
+					.order(ByteOrder.nativeOrder());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		pageCount++;
+	}
+
+	private ByteBuffer page(int node) {
+		return pages[node >>> PAGE_SHIFT];
+	}
+
+	private static int offset(int node, int field) {
+		return ((node & PAGE_MASK) << RECORD_SHIFT) + field;
+	}
+
+	@Override
+	char data(int node) {
+		return page(node).getChar(offset(node, DATA_FIELD));
+	}
+
+	@Override
+	void setData(int node, char ch) {
+		page(node).putChar(offset(node, DATA_FIELD), ch);
+	}
+
+	@Override
+	int left(int node) {
+		return page(node).getInt(offset(node, LEFT_FIELD));
+	}
+
+	@Override
+	void setLeft(int node, int child) {
+		page(node).putInt(offset(node, LEFT_FIELD), child);
+	}
+
+	@Override
+	int right(int node) {
+		return page(node).getInt(offset(node, RIGHT_FIELD));
+	}
+
+	@Override
+	void setRight(int node, int child) {
+		page(node).putInt(offset(node, RIGHT_FIELD), child);
+	}
+
+	@Override
+	int rank(int node) {
+		return page(node).getInt(offset(node, RANK_FIELD));
+	}
+
+	@Override
+	void setRank(int node, int rank) {
+		page(node).putInt(offset(node, RANK_FIELD), rank);
+	}
+
+	@Override
+	byte balance(int node) {
+		return page(node).get(offset(node, BALANCE_FIELD));
+	}
+
+	@Override
+	void setBalance(int node, byte code) {
+		page(node).put(offset(node, BALANCE_FIELD), code);
+	}
+}
@@ -0,0 +1,66 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class OffHeapEditTreeTest {
+
+	@Test
+	public void test101MatchesArrayTreeAcrossPages() {
+		Random rand = new Random(5);
+		try (OffHeapEditTree t = new OffHeapEditTree()) {
+			ArrayEditTree a = new ArrayEditTree();
+			int edits = (1 << OffHeapEditTree.PAGE_SHIFT) + 5000;
+			for (int i = 0; i < edits; i++) {
+				if (a.size() > 0 && rand.nextInt(4) == 0) {
+					int pos = rand.nextInt(a.size());
+					assertEquals(a.delete(pos), t.delete(pos));
+				} else {
+					int pos = rand.nextInt(a.size() + 1);
+					char ch = (char) rand.nextInt(Character.MAX_VALUE + 1);
+					a.add(ch, pos);
+					t.add(ch, pos);
+				}
+			}
+			assertEquals(a.toString(), t.toString());
+			assertEquals(a.toDebugString(), t.toDebugString());
+			assertTrue(t.balanceCodesAreCorrect());
+			assertTrue(t.offHeapBytes() >= 16L * a.size());
+		}
+	}
+
+	@Test
+	public void test102ConstructorWithStringAndGet() {
+		try (OffHeapEditTree t = new OffHeapEditTree("hello, world")) {
+			assertEquals("hello, world", t.toString());
+			assertEquals(',', t.get(5));
+			assertEquals("world", t.get(7, 5));
+			assertTrue(t.ranksMatchLeftSubtreeSize());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void test103ClosedTreeRejectsEdits() {
+		OffHeapEditTree t = new OffHeapEditTree("abc");
+		t.close();
+		assertEquals(0, t.size());
+		t.add('x');
+	}
+
+	@Test
+	public void test104CloseReleasesThePages() {
+		OffHeapEditTree t = new OffHeapEditTree("abc");
+		assertTrue(t.offHeapBytes() > 0);
+		t.close();
+		assertEquals(0, t.offHeapBytes());
+		//closing twice is harmless
+		t.close();
+	}
+}
@@ -0,0 +1,72 @@
+package editortrees;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+final class RollingHash {
+
+	static final long MOD = (1L << 61) - 1;
+	private static final long MASK30 = (1L << 30) - 1;
+	private static final long MASK31 = (1L << 31) - 1;
+	private static final int BITS = 11;
+	private static final int MASK = (1 << BITS) - 1;
+
+	//random base, so inputs cannot be crafted to collide
+	static final long BASE = ThreadLocalRandom.current().nextLong(1L << 40, MOD - 1);
+
+	//BASE^k = HIGH[k >> 22] * MID[(k >> 11) & MASK] * LOW[k & MASK]
+	private static final long[] LOW = powers(BASE, 1 << BITS);
+	private static final long[] MID = powers(power(BASE, 1 << BITS), 1 << BITS);
+	private static final long[] HIGH = powers(power(BASE, 1 << (2 * BITS)), 1 << (31 - 2 * BITS));
+
+	private RollingHash() {
+	}
+
+	private static long[] powers(long base, int count) {
+		long[] table = new long[count];
+		table[0] = 1;
+		for (int i = 1; i < count; i++) {
+			table[i] = mulMod(table[i - 1], base);
+		}
+		return table;
+	}
+
+	private static long power(long base, int exponent) {
+		long result = 1;
+		while (exponent > 0) {
+			if ((exponent & 1) != 0) {
+				result = mulMod(result, base);
+			}
+			base = mulMod(base, base);
+			exponent >>= 1;
+		}
+		return result;
+	}
+
+	static long power(int exponent) {
+		long low = LOW[exponent & MASK];
+		long mid = MID[(exponent >>> BITS) & MASK];
+		return mulMod(mulMod(HIGH[exponent >>> (2 * BITS)], mid), low);
+	}
+
+	static long mulMod(long a, long b) {
+		//31/30-bit halves keep every partial product inside a long
+		long aHigh = a >>> 31, aLow = a & MASK31;
+		long bHigh = b >>> 31, bLow = b & MASK31;
+		long mid = aLow * bHigh + aHigh * bLow;
+		return mod(2 * aHigh * bHigh + (mid >>> 30) + ((mid & MASK30) << 31) + aLow * bLow);
+	}
+
+	static long mod(long x) {
+		long folded = (x & MOD) + (x >>> 61);
+		return folded >= MOD ? folded - MOD : folded;
+	}
+
+	static long lift(char ch) {
+		//offset so a NUL still moves the hash
+		return ch + 1;
+	}
+
+	static long append(long hash, int length, long suffix) {
+		return mod(hash + mulMod(suffix, power(length)));
+	}
+}
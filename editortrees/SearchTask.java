@@ -0,0 +1,80 @@
+package editortrees;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+final class SearchTask extends RecursiveTask<SearchTask.Matches> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final class Matches {
+		int count;
+		int[] positions;
+
+		Matches(int count, int[] positions) {
+			this.count = count;
+			this.positions = positions;
+		}
+
+		Matches append(Matches next) {
+			if (positions != null) {
+				positions = Arrays.copyOf(positions, count + next.count);
+				System.arraycopy(next.positions, 0, positions, count, next.count);
+			}
+			count += next.count;
+			return this;
+		}
+	}
+
+	private final EditTree tree;
+	private final CharSequence pattern;
+	private final boolean collect;
+	private final int cutoff;
+	private final Node node;
+	private final int offset;
+	private final int size;
+
+	SearchTask(EditTree tree, CharSequence pattern, boolean collect, int cutoff, Node node, int offset, int size) {
+		this.tree = tree;
+		this.pattern = pattern;
+		this.collect = collect;
+		this.cutoff = cutoff;
+		this.node = node;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	protected Matches compute() {
+		if (size <= cutoff) {
+			return scan(offset, offset + size);
+		}
+		//split-at-subtree-boundaries
+		SearchTask right = new SearchTask(tree, pattern, collect, cutoff, node.right, offset + node.rank + 1, size - node.rank - 1);
+		right.fork();
+		Matches matches = new SearchTask(tree, pattern, collect, cutoff, node.left, offset, node.rank).compute();
+		matches.append(scan(offset + node.rank, offset + node.rank + 1));
+		return matches.append(right.join());
+	}
+
+	private Matches scan(int from, int to) {
+		int[] positions = collect ? new int[8] : null;
+		int count = 0;
+		//overlap m - 1 chars past the slice for straddling matches
+		int end = Math.min(tree.size(), to + pattern.length() - 1);
+		if (from + pattern.length() <= end) {
+			Horspool matcher = new Horspool(pattern, false, new CharIterator(tree, from, end));
+			int found;
+			while ((found = matcher.find()) >= 0 && from + found < to) {
+				if (collect) {
+					if (count == positions.length) {
+						positions = Arrays.copyOf(positions, count * 2);
+					}
+					positions[count] = from + found;
+				}
+				count++;
+			}
+		}
+		return new Matches(count, positions);
+	}
+}
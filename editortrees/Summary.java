@@ -0,0 +1,10 @@
+package editortrees;
+
+public interface Summary<S> {
+
+	S identity();
+
+	S lift(char ch);
+
+	S combine(S left, S right);
+}
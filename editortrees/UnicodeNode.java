@@ -0,0 +1,134 @@
+package editortrees;
+
+final class UnicodeNode extends Node {
+
+	//counted as the encoder sees them: a pair is one code point and four bytes,
+	//a lone surrogate is one code point and one replacement byte
+	int codePoints;
+	int utf8Length;
+	boolean startsWithLow;
+	boolean endsWithHigh;
+
+	UnicodeNode(char data) {
+		super(data);
+		this.codePoints = 1;
+		this.utf8Length = ownBytes(data);
+		this.startsWithLow = Character.isLowSurrogate(data);
+		this.endsWithHigh = Character.isHighSurrogate(data);
+	}
+
+	@Override
+	void refresh(EditTree tree) {
+		super.refresh(tree);
+		int points = measure(left, false) + 1 + measure(right, false);
+		int bytes = measure(left, true) + ownBytes(data) + measure(right, true);
+		//a pair split across a boundary was counted as two lone halves
+		if (endsWithHigh(left) && Character.isLowSurrogate(data)) {
+			points--;
+			bytes += 2;
+		}
+		if (Character.isHighSurrogate(data) && startsWithLow(right)) {
+			points--;
+			bytes += 2;
+		}
+		this.codePoints = points;
+		this.utf8Length = bytes;
+		this.startsWithLow = left == NULL_NODE ? Character.isLowSurrogate(data) : startsWithLow(left);
+		this.endsWithHigh = right == NULL_NODE ? Character.isHighSurrogate(data) : endsWithHigh(right);
+	}
+
+	@Override
+	boolean countsUnicode() {
+		return true;
+	}
+
+	void copyCounts(UnicodeNode from) {
+		this.codePoints = from.codePoints;
+		this.utf8Length = from.utf8Length;
+		this.startsWithLow = from.startsWithLow;
+		this.endsWithHigh = from.endsWithHigh;
+	}
+
+	static int measure(Node node, boolean utf8) {
+		if (node == NULL_NODE) {
+			return 0;
+		}
+		UnicodeNode counted = (UnicodeNode) node;
+		return utf8 ? counted.utf8Length : counted.codePoints;
+	}
+
+	private static boolean startsWithLow(Node node) {
+		return node != NULL_NODE && ((UnicodeNode) node).startsWithLow;
+	}
+
+	private static boolean endsWithHigh(Node node) {
+		return node != NULL_NODE && ((UnicodeNode) node).endsWithHigh;
+	}
+
+	private static int ownBytes(char ch) {
+		if (ch < 0x80 || Character.isSurrogate(ch)) {
+			//a surrogate alone encodes as one replacement byte
+			return 1;
+		}
+		return ch < 0x800 ? 2 : 3;
+	}
+
+	//code points or bytes before pos, which must not split a pair
+	static int before(Node root, int pos, boolean utf8) {
+		int units = 0;
+		boolean afterHigh = false;
+		Node node = root;
+		while (node != NULL_NODE) {
+			if (pos <= node.rank) {
+				node = node.left;
+				continue;
+			}
+			if (node.left != NULL_NODE) {
+				units += measure(node.left, utf8) + pairing(afterHigh && startsWithLow(node.left), utf8);
+				afterHigh = endsWithHigh(node.left);
+			}
+			boolean paired = afterHigh && Character.isLowSurrogate(node.data);
+			units += (utf8 ? ownBytes(node.data) : 1) + pairing(paired, utf8);
+			afterHigh = Character.isHighSurrogate(node.data);
+			pos -= node.rank + 1;
+			node = node.right;
+		}
+		return units;
+	}
+
+	//char offset of the code point holding the given code point or byte index
+	static int position(Node root, int target, boolean utf8) {
+		int offset = 0;
+		boolean afterHigh = false;
+		Node node = root;
+		while (true) {
+			int leftUnits = measure(node.left, utf8) + pairing(afterHigh && startsWithLow(node.left), utf8);
+			if (target < leftUnits) {
+				node = node.left;
+				continue;
+			}
+			target -= leftUnits;
+			if (node.left != NULL_NODE) {
+				afterHigh = endsWithHigh(node.left);
+			}
+			boolean paired = afterHigh && Character.isLowSurrogate(node.data);
+			int own = (utf8 ? ownBytes(node.data) : 1) + pairing(paired, utf8);
+			if (target < own) {
+				//round-down-to-pair-start
+				return paired ? offset + node.rank - 1 : offset + node.rank;
+			}
+			target -= own;
+			afterHigh = Character.isHighSurrogate(node.data);
+			offset += node.rank + 1;
+			node = node.right;
+		}
+	}
+
+	private static int pairing(boolean paired, boolean utf8) {
+		if (!paired) {
+			return 0;
+		}
+		//two replacement bytes become four, two code points become one
+		return utf8 ? 2 : -1;
+	}
+}